@@ -0,0 +1,14 @@
+package com.fexco.fxrates.common.constant;
+
+/**
+ * Constants for Azure Cosmos DB documents
+ */
+public final class CosmosConstants {
+
+    private CosmosConstants() {
+        // Utility class
+    }
+
+    // Suffix of the materialized "latest" document id per currency pair, e.g. "EURUSD_latest"
+    public static final String LATEST_DOCUMENT_ID_SUFFIX = "_latest";
+}
@@ -0,0 +1,158 @@
+package com.fexco.fxrates.common.model;
+
+import java.time.Instant;
+
+/**
+ * Incremental OHLC aggregation of mid prices for one pair and bucket
+ *
+ * Works on fixed-point mantissas, so the accumulator itself allocates nothing per tick; callers
+ * convert each tick once (e.g. {@link FixedPointQuote#from}), which does allocate. Open and close are
+ * chosen by tick timestamp, so ticks may be added in any order (e.g. newest first).
+ * Not thread-safe.
+ */
+public final class CandleAccumulator {
+
+    private final String currencyPair;
+    private final CandleInterval interval;
+    private final long bucketStartMillis;
+    private final int scale;
+
+    private long openMid;
+    private long openMillis = Long.MAX_VALUE;
+    private long closeMid;
+    private long closeMillis = Long.MIN_VALUE;
+    private long high = Long.MIN_VALUE;
+    private long low = Long.MAX_VALUE;
+    private long midSum;
+    private long tickCount;
+
+    public CandleAccumulator(String currencyPair, CandleInterval interval, long bucketStartMillis) {
+        this.currencyPair = currencyPair;
+        this.interval = interval;
+        this.bucketStartMillis = bucketStartMillis;
+        this.scale = FixedPoint.scaleFor(currencyPair);
+    }
+
+    /**
+     * Accumulator holding the ticks of a stored candle, into the bucket of the given interval
+     * containing it (the same bucket, or a wider one when rolling candles up)
+     *
+     * The sum of mids is rebuilt from the average, so merging is exact up to its rounding.
+     */
+    public static CandleAccumulator fromCandle(FxRateCandle candle, CandleInterval interval) {
+        CandleAccumulator accumulator = new CandleAccumulator(candle.getCurrencyPair(), interval,
+                interval.bucketStartMillis(candle.getBucketStart().toEpochMilli()));
+        if (candle.getTickCount() == null || candle.getTickCount() == 0) {
+            return accumulator;
+        }
+
+        long bucketStart = candle.getBucketStart().toEpochMilli();
+        accumulator.openMillis = candle.getOpenTime() != null ? candle.getOpenTime().toEpochMilli() : bucketStart;
+        accumulator.closeMillis = candle.getCloseTime() != null ? candle.getCloseTime().toEpochMilli() : bucketStart;
+        accumulator.openMid = FixedPoint.toMantissa(candle.getOpen(), accumulator.scale);
+        accumulator.closeMid = FixedPoint.toMantissa(candle.getClose(), accumulator.scale);
+        accumulator.high = FixedPoint.toMantissa(candle.getHigh(), accumulator.scale);
+        accumulator.low = FixedPoint.toMantissa(candle.getLow(), accumulator.scale);
+        accumulator.tickCount = candle.getTickCount();
+        accumulator.midSum = FixedPoint.toMantissa(candle.getMid(), accumulator.scale) * accumulator.tickCount;
+        return accumulator;
+    }
+
+    /**
+     * Add a tick; ticks without a price are ignored
+     *
+     * @return true if the tick was counted
+     */
+    public boolean add(FixedPointQuote quote) {
+        long mid = FixedPoint.rescale(quote.getMid(), quote.getScale(), scale);
+        if (mid == FixedPoint.NONE) {
+            return false;
+        }
+        long timestamp = quote.getTimestampMillis();
+
+        if (timestamp < openMillis) {
+            openMillis = timestamp;
+            openMid = mid;
+        }
+        if (timestamp >= closeMillis) {
+            closeMillis = timestamp;
+            closeMid = mid;
+        }
+        high = Math.max(high, mid);
+        low = Math.min(low, mid);
+        midSum += mid;
+        tickCount++;
+        return true;
+    }
+
+    /**
+     * Merge another accumulator of the same pair and bucket (e.g. a partial bucket)
+     */
+    public void merge(CandleAccumulator other) {
+        if (other.tickCount == 0) {
+            return;
+        }
+        if (other.openMillis < openMillis) {
+            openMillis = other.openMillis;
+            openMid = other.openMid;
+        }
+        if (other.closeMillis >= closeMillis) {
+            closeMillis = other.closeMillis;
+            closeMid = other.closeMid;
+        }
+        high = Math.max(high, other.high);
+        low = Math.min(low, other.low);
+        midSum += other.midSum;
+        tickCount += other.tickCount;
+    }
+
+    public String getCurrencyPair() {
+        return currencyPair;
+    }
+
+    public CandleInterval getInterval() {
+        return interval;
+    }
+
+    public long getBucketStartMillis() {
+        return bucketStartMillis;
+    }
+
+    /**
+     * End of the bucket (exclusive), in epoch millis
+     */
+    public long getBucketEndMillis() {
+        return bucketStartMillis + interval.getMillis();
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public boolean isEmpty() {
+        return tickCount == 0;
+    }
+
+    /**
+     * Candle for the ticks added so far (null if none)
+     */
+    public FxRateCandle toCandle() {
+        if (tickCount == 0) {
+            return null;
+        }
+        long averageMid = Math.floorDiv(midSum + tickCount / 2, tickCount);
+        return FxRateCandle.builder()
+                .currencyPair(currencyPair)
+                .interval(interval.getCode())
+                .bucketStart(Instant.ofEpochMilli(bucketStartMillis))
+                .openTime(Instant.ofEpochMilli(openMillis))
+                .closeTime(Instant.ofEpochMilli(closeMillis))
+                .open(FixedPoint.toBigDecimal(openMid, scale))
+                .high(FixedPoint.toBigDecimal(high, scale))
+                .low(FixedPoint.toBigDecimal(low, scale))
+                .close(FixedPoint.toBigDecimal(closeMid, scale))
+                .mid(FixedPoint.toBigDecimal(averageMid, scale))
+                .tickCount(tickCount)
+                .build();
+    }
+}
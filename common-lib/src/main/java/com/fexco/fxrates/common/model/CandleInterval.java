@@ -0,0 +1,68 @@
+package com.fexco.fxrates.common.model;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Bucket sizes for OHLC candles; buckets are aligned to the epoch (UTC)
+ */
+public enum CandleInterval {
+
+    ONE_MINUTE("1m", Duration.ofMinutes(1)),
+    FIVE_MINUTES("5m", Duration.ofMinutes(5)),
+    ONE_HOUR("1h", Duration.ofHours(1)),
+    ONE_DAY("1d", Duration.ofDays(1));
+
+    private final String code;
+    private final Duration duration;
+    private final long millis;
+
+    CandleInterval(String code, Duration duration) {
+        this.code = code;
+        this.duration = duration;
+        this.millis = duration.toMillis();
+    }
+
+    /**
+     * Short code used in requests and documents, e.g. "5m"
+     */
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Start of the bucket containing an instant, in epoch millis
+     */
+    public long bucketStartMillis(long epochMillis) {
+        return Math.floorDiv(epochMillis, millis) * millis;
+    }
+
+    /**
+     * Start of the bucket containing an instant
+     */
+    public Instant bucketStart(Instant instant) {
+        return Instant.ofEpochMilli(bucketStartMillis(instant.toEpochMilli()));
+    }
+
+    /**
+     * Interval for a code
+     *
+     * @throws IllegalArgumentException if the code is unknown
+     */
+    public static CandleInterval fromCode(String code) {
+        for (CandleInterval interval : values()) {
+            if (interval.code.equalsIgnoreCase(code)) {
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("Unknown candle interval: " + code);
+    }
+}
@@ -0,0 +1,103 @@
+package com.fexco.fxrates.common.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Helpers for fixed-point prices
+ *
+ * A price is a long mantissa with a per-pair scale: value = mantissa / 10^scale.
+ * Arithmetic on mantissas is allocation-free; BigDecimal is only created at the edges.
+ */
+public final class FixedPoint {
+
+    private FixedPoint() {
+        // Utility class
+    }
+
+    /**
+     * Marker for an absent price (e.g. a quote without bid/ask)
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
+    // Decimal places kept per pair; JPY pairs are quoted with two fewer digits
+    public static final int DEFAULT_SCALE = 8;
+    public static final int JPY_SCALE = 6;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L
+    };
+
+    /**
+     * Scale used for a currency pair
+     */
+    public static int scaleFor(String currencyPair) {
+        return currencyPair != null && currencyPair.contains("JPY") ? JPY_SCALE : DEFAULT_SCALE;
+    }
+
+    /**
+     * Whether a price converts to a mantissa at the given scale without rounding
+     */
+    public static boolean isExact(BigDecimal value, int scale) {
+        return value == null || value.signum() == 0 || value.stripTrailingZeros().scale() <= scale;
+    }
+
+    /**
+     * Convert a price to a mantissa at the given scale
+     * (exact for prices with up to {@code scale} decimals, HALF_UP rounded otherwise;
+     * see {@link #isExact} to detect the rounded ones)
+     *
+     * @return Mantissa, or {@link #NONE} if value is null
+     */
+    public static long toMantissa(BigDecimal value, int scale) {
+        if (value == null) {
+            return NONE;
+        }
+        return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convert a mantissa back to a BigDecimal
+     *
+     * @return BigDecimal, or null if mantissa is {@link #NONE}
+     */
+    public static BigDecimal toBigDecimal(long mantissa, int scale) {
+        return mantissa == NONE ? null : BigDecimal.valueOf(mantissa, scale);
+    }
+
+    /**
+     * Mid of bid and ask at the same scale, rounded half up
+     */
+    public static long mid(long bid, long ask) {
+        return Math.floorDiv(bid + ask + 1, 2);
+    }
+
+    /**
+     * Spread (ask - bid)
+     */
+    public static long spread(long bid, long ask) {
+        return ask - bid;
+    }
+
+    /**
+     * Relative change between two prices of the same scale, in percent
+     */
+    public static double percentChange(long previous, long current) {
+        return Math.abs(current - previous) * 100.0 / previous;
+    }
+
+    /**
+     * Rescale a mantissa (e.g. to compare prices of different scales)
+     */
+    public static long rescale(long mantissa, int fromScale, int toScale) {
+        if (mantissa == NONE || fromScale == toScale) {
+            return mantissa;
+        }
+        if (toScale > fromScale) {
+            return Math.multiplyExact(mantissa, POWERS_OF_TEN[toScale - fromScale]);
+        }
+        long divisor = POWERS_OF_TEN[fromScale - toScale];
+        return Math.floorDiv(mantissa + divisor / 2, divisor);
+    }
+}
@@ -0,0 +1,124 @@
+package com.fexco.fxrates.common.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Compact, immutable fixed-point view of an FX rate for in-memory, cache and event paths
+ *
+ * Rate, bid and ask are long mantissas sharing the pair's scale (see {@link FixedPoint}).
+ * Mid and spread are computed on primitives, so the hot path does not allocate.
+ * Use {@link #toFxRate()} or the BigDecimal accessors at the API edge.
+ */
+public final class FixedPointQuote {
+
+    private final String currencyPair;
+    private final int scale;
+    private final long rate;
+    private final long bid;
+    private final long ask;
+    private final long timestampMillis;
+
+    public FixedPointQuote(String currencyPair, int scale, long rate, long bid, long ask, long timestampMillis) {
+        this.currencyPair = currencyPair;
+        this.scale = scale;
+        this.rate = rate;
+        this.bid = bid;
+        this.ask = ask;
+        this.timestampMillis = timestampMillis;
+    }
+
+    /**
+     * Build a quote from an FxRate using the pair's scale
+     */
+    public static FixedPointQuote from(FxRate fxRate) {
+        int scale = FixedPoint.scaleFor(fxRate.getCurrencyPair());
+        return new FixedPointQuote(
+                fxRate.getCurrencyPair(),
+                scale,
+                FixedPoint.toMantissa(fxRate.getRate(), scale),
+                FixedPoint.toMantissa(fxRate.getBid(), scale),
+                FixedPoint.toMantissa(fxRate.getAsk(), scale),
+                fxRate.getTimestamp() != null ? fxRate.getTimestamp().toEpochMilli() : 0L
+        );
+    }
+
+    public String getCurrencyPair() {
+        return currencyPair;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public long getRate() {
+        return rate;
+    }
+
+    public long getBid() {
+        return bid;
+    }
+
+    public long getAsk() {
+        return ask;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public boolean hasBidAsk() {
+        return bid != FixedPoint.NONE && ask != FixedPoint.NONE;
+    }
+
+    /**
+     * Mid mantissa (falls back to rate when bid/ask are absent)
+     */
+    public long getMid() {
+        return hasBidAsk() ? FixedPoint.mid(bid, ask) : rate;
+    }
+
+    /**
+     * Spread mantissa (zero when bid/ask are absent)
+     */
+    public long getSpread() {
+        return hasBidAsk() ? FixedPoint.spread(bid, ask) : 0L;
+    }
+
+    public BigDecimal rateAsBigDecimal() {
+        return FixedPoint.toBigDecimal(rate, scale);
+    }
+
+    public BigDecimal bidAsBigDecimal() {
+        return FixedPoint.toBigDecimal(bid, scale);
+    }
+
+    public BigDecimal askAsBigDecimal() {
+        return FixedPoint.toBigDecimal(ask, scale);
+    }
+
+    public BigDecimal midAsBigDecimal() {
+        return FixedPoint.toBigDecimal(getMid(), scale);
+    }
+
+    /**
+     * Convert back to an FxRate carrying the price fields of this quote
+     */
+    public FxRate toFxRate() {
+        return FxRate.builder()
+                .fromCurrency(currencyPair.substring(0, 3))
+                .toCurrency(currencyPair.substring(3, 6))
+                .currencyPair(currencyPair)
+                .rate(rateAsBigDecimal())
+                .bid(bidAsBigDecimal())
+                .ask(askAsBigDecimal())
+                .timestamp(Instant.ofEpochMilli(timestampMillis))
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return currencyPair + "[rate=" + rateAsBigDecimal() + ", bid=" + bidAsBigDecimal()
+                + ", ask=" + askAsBigDecimal() + ", ts=" + timestampMillis + "]";
+    }
+}
@@ -1,6 +1,7 @@
 package com.fexco.fxrates.common.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fexco.fxrates.common.constant.CosmosConstants;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,6 +19,8 @@ import java.time.Instant;
 @AllArgsConstructor
 public class FxRate {
 
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+
     /**
      * Unique identifier for the rate record
      */
@@ -94,11 +97,27 @@ public class FxRate {
     }
 
     /**
-     * Calculate mid rate from bid and ask
+     * Helper method to get the well-known id of the "latest" document for a currency pair
+     */
+    public static String latestDocumentId(String currencyPair) {
+        return currencyPair + CosmosConstants.LATEST_DOCUMENT_ID_SUFFIX;
+    }
+
+    /**
+     * Helper method to get the document id of a stored tick
+     * Format: {currencyPair}_{timestampMillis} (the source is not part of the id: it can be an
+     * "Aggregated(...)" list that changes with the providers that answered)
+     */
+    public static String tickDocumentId(String currencyPair, long timestampMillis) {
+        return currencyPair + "_" + timestampMillis;
+    }
+
+    /**
+     * Calculate mid rate from bid and ask (exact: halving a decimal always terminates)
      */
     public BigDecimal getMidRate() {
         if (bid != null && ask != null) {
-            return bid.add(ask).divide(BigDecimal.valueOf(2));
+            return bid.add(ask).divide(TWO);
         }
         return rate;
     }
@@ -112,4 +131,11 @@ public class FxRate {
         }
         return BigDecimal.ZERO;
     }
+
+    /**
+     * Compact fixed-point view of this rate for allocation-free arithmetic
+     */
+    public FixedPointQuote toFixedPointQuote() {
+        return FixedPointQuote.from(this);
+    }
 }
@@ -0,0 +1,94 @@
+package com.fexco.fxrates.common.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * OHLC candle of the mid price of a currency pair over one time bucket
+ *
+ * Also the document stored for ingest-time rollups (id: {currencyPair}_{interval}_{bucketStartMillis}).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FxRateCandle {
+
+    /**
+     * Document id when stored as a rollup
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String id;
+
+    /**
+     * Currency pair e.g., "EURUSD"
+     */
+    private String currencyPair;
+
+    /**
+     * Bucket size code e.g., "1m" (see {@link CandleInterval})
+     */
+    private String interval;
+
+    /**
+     * Start of the bucket (inclusive)
+     */
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant bucketStart;
+
+    /**
+     * Timestamp of the first tick in the bucket
+     */
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant openTime;
+
+    /**
+     * Timestamp of the last tick in the bucket
+     */
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private Instant closeTime;
+
+    /**
+     * Mid price of the first tick in the bucket
+     */
+    private BigDecimal open;
+
+    /**
+     * Highest mid price in the bucket
+     */
+    private BigDecimal high;
+
+    /**
+     * Lowest mid price in the bucket
+     */
+    private BigDecimal low;
+
+    /**
+     * Mid price of the last tick in the bucket
+     */
+    private BigDecimal close;
+
+    /**
+     * Average mid price over the ticks in the bucket
+     */
+    private BigDecimal mid;
+
+    /**
+     * Number of ticks in the bucket
+     */
+    private Long tickCount;
+
+    /**
+     * Helper method to get the rollup document id of a bucket
+     */
+    public static String documentId(String currencyPair, CandleInterval interval, Instant bucketStart) {
+        return currencyPair + "_" + interval.getCode() + "_" + bucketStart.toEpochMilli();
+    }
+}
@@ -0,0 +1,253 @@
+package com.fexco.fxrates.common.serialization;
+
+import com.fexco.fxrates.common.model.FixedPoint;
+import com.fexco.fxrates.common.model.FxRate;
+
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact, versioned binary encoding of an FxRate
+ *
+ * Layout (version 1, big-endian):
+ * <pre>
+ *   byte    version
+ *   short   presence flags (one bit per optional field)
+ *   byte[6] currency pair (ASCII)
+ *   byte    price scale
+ *   long    rate, bid, ask           (mantissas, if present)
+ *   long    timestamp, createdAt, updatedAt (epoch millis, if present)
+ *   double  confidenceScore          (if present)
+ *   int     ttlSeconds               (if present)
+ *   short+N id, source               (UTF-8, if present)
+ * </pre>
+ * A typical rate encodes to well under 100 bytes. Currency codes are interned on decode.
+ */
+public final class FxRateBinaryCodec {
+
+    private FxRateBinaryCodec() {
+        // Utility class
+    }
+
+    public static final byte VERSION = 1;
+
+    private static final int HAS_RATE = 1;
+    private static final int HAS_BID = 1 << 1;
+    private static final int HAS_ASK = 1 << 2;
+    private static final int HAS_TIMESTAMP = 1 << 3;
+    private static final int HAS_CREATED_AT = 1 << 4;
+    private static final int HAS_UPDATED_AT = 1 << 5;
+    private static final int HAS_CONFIDENCE = 1 << 6;
+    private static final int HAS_TTL = 1 << 7;
+    private static final int HAS_ID = 1 << 8;
+    private static final int HAS_SOURCE = 1 << 9;
+    private static final int EIGHT_BYTE_FIELDS = HAS_RATE | HAS_BID | HAS_ASK
+            | HAS_TIMESTAMP | HAS_CREATED_AT | HAS_UPDATED_AT | HAS_CONFIDENCE;
+
+    private static final int PAIR_LENGTH = 6;
+    private static final int MAX_EXACT_SCALE = 12;
+    private static final int MAX_INTERNED = 4096;
+
+    // Interned currency codes and pairs, so decoded rates share String instances
+    private static final Map<String, String> INTERNED = new ConcurrentHashMap<>();
+
+    /**
+     * Encode a rate
+     *
+     * @throws IllegalArgumentException if the currency pair is not 6 ASCII characters
+     */
+    public static byte[] encode(FxRate rate) {
+        String pair = rate.getCurrencyPair();
+        if (pair == null || pair.length() != PAIR_LENGTH) {
+            throw new IllegalArgumentException("Currency pair must be 6 characters: " + pair);
+        }
+
+        byte[] id = utf8(rate.getId());
+        byte[] source = utf8(rate.getSource());
+        int scale = chooseScale(rate);
+
+        int flags = (rate.getRate() != null ? HAS_RATE : 0)
+                | (rate.getBid() != null ? HAS_BID : 0)
+                | (rate.getAsk() != null ? HAS_ASK : 0)
+                | (rate.getTimestamp() != null ? HAS_TIMESTAMP : 0)
+                | (rate.getCreatedAt() != null ? HAS_CREATED_AT : 0)
+                | (rate.getUpdatedAt() != null ? HAS_UPDATED_AT : 0)
+                | (rate.getConfidenceScore() != null ? HAS_CONFIDENCE : 0)
+                | (rate.getTtlSeconds() != null ? HAS_TTL : 0)
+                | (id != null ? HAS_ID : 0)
+                | (source != null ? HAS_SOURCE : 0);
+
+        // Header + one 8-byte slot per price, timestamp and confidence field
+        int size = 1 + 2 + PAIR_LENGTH + 1
+                + 8 * Integer.bitCount(flags & EIGHT_BYTE_FIELDS)
+                + ((flags & HAS_TTL) != 0 ? 4 : 0)
+                + (id != null ? 2 + id.length : 0)
+                + (source != null ? 2 + source.length : 0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION);
+        buffer.putShort((short) flags);
+        buffer.put(pair.getBytes(StandardCharsets.US_ASCII));
+        buffer.put((byte) scale);
+
+        if (rate.getRate() != null) {
+            buffer.putLong(FixedPoint.toMantissa(rate.getRate(), scale));
+        }
+        if (rate.getBid() != null) {
+            buffer.putLong(FixedPoint.toMantissa(rate.getBid(), scale));
+        }
+        if (rate.getAsk() != null) {
+            buffer.putLong(FixedPoint.toMantissa(rate.getAsk(), scale));
+        }
+        if (rate.getTimestamp() != null) {
+            buffer.putLong(rate.getTimestamp().toEpochMilli());
+        }
+        if (rate.getCreatedAt() != null) {
+            buffer.putLong(rate.getCreatedAt().toEpochMilli());
+        }
+        if (rate.getUpdatedAt() != null) {
+            buffer.putLong(rate.getUpdatedAt().toEpochMilli());
+        }
+        if (rate.getConfidenceScore() != null) {
+            buffer.putDouble(rate.getConfidenceScore());
+        }
+        if (rate.getTtlSeconds() != null) {
+            buffer.putInt(rate.getTtlSeconds());
+        }
+        if (id != null) {
+            putBytes(buffer, id);
+        }
+        if (source != null) {
+            putBytes(buffer, source);
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Decode a rate
+     *
+     * @throws IllegalArgumentException if the bytes are not a supported encoding
+     */
+    public static FxRate decode(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported FxRate encoding version: " + version);
+            }
+
+            int flags = buffer.getShort() & 0xFFFF;
+            byte[] pairBytes = new byte[PAIR_LENGTH];
+            buffer.get(pairBytes);
+            String pair = intern(new String(pairBytes, StandardCharsets.US_ASCII));
+            int scale = buffer.get();
+
+            FxRate.FxRateBuilder builder = FxRate.builder()
+                    .currencyPair(pair)
+                    .fromCurrency(intern(pair.substring(0, 3)))
+                    .toCurrency(intern(pair.substring(3, 6)));
+
+            // Fields are read in the order they were written
+            if ((flags & HAS_RATE) != 0) {
+                builder.rate(BigDecimal.valueOf(buffer.getLong(), scale));
+            }
+            if ((flags & HAS_BID) != 0) {
+                builder.bid(BigDecimal.valueOf(buffer.getLong(), scale));
+            }
+            if ((flags & HAS_ASK) != 0) {
+                builder.ask(BigDecimal.valueOf(buffer.getLong(), scale));
+            }
+            if ((flags & HAS_TIMESTAMP) != 0) {
+                builder.timestamp(Instant.ofEpochMilli(buffer.getLong()));
+            }
+            if ((flags & HAS_CREATED_AT) != 0) {
+                builder.createdAt(Instant.ofEpochMilli(buffer.getLong()));
+            }
+            if ((flags & HAS_UPDATED_AT) != 0) {
+                builder.updatedAt(Instant.ofEpochMilli(buffer.getLong()));
+            }
+            if ((flags & HAS_CONFIDENCE) != 0) {
+                builder.confidenceScore(buffer.getDouble());
+            }
+            if ((flags & HAS_TTL) != 0) {
+                builder.ttlSeconds(buffer.getInt());
+            }
+            if ((flags & HAS_ID) != 0) {
+                builder.id(getString(buffer));
+            }
+            if ((flags & HAS_SOURCE) != 0) {
+                builder.source(intern(getString(buffer)));
+            }
+
+            return builder.build();
+
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated FxRate encoding", e);
+        }
+    }
+
+    /**
+     * Smallest scale that represents rate, bid and ask exactly, or the pair's
+     * fixed-point scale if that is not possible within a long mantissa
+     */
+    private static int chooseScale(FxRate rate) {
+        int scale = 0;
+        for (BigDecimal price : new BigDecimal[]{rate.getRate(), rate.getBid(), rate.getAsk()}) {
+            if (price != null) {
+                scale = Math.max(scale, Math.max(0, price.stripTrailingZeros().scale()));
+            }
+        }
+
+        if (scale <= MAX_EXACT_SCALE && fitsInLong(rate, scale)) {
+            return scale;
+        }
+        return FixedPoint.scaleFor(rate.getCurrencyPair());
+    }
+
+    private static boolean fitsInLong(FxRate rate, int scale) {
+        for (BigDecimal price : new BigDecimal[]{rate.getRate(), rate.getBid(), rate.getAsk()}) {
+            if (price != null && price.setScale(scale).unscaledValue().bitLength() > 63) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String field too long to encode: " + bytes.length + " bytes");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String intern(String value) {
+        String interned = INTERNED.get(value);
+        if (interned != null) {
+            return interned;
+        }
+        // Bound the table in case of unexpected input
+        if (INTERNED.size() >= MAX_INTERNED) {
+            return value;
+        }
+        interned = INTERNED.putIfAbsent(value, value);
+        return interned != null ? interned : value;
+    }
+}
@@ -0,0 +1,126 @@
+package com.fexco.fxrates.common.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CandleAccumulatorTest {
+
+    private static final String PAIR = "EURUSD";
+    private static final long BUCKET = Instant.parse("2024-01-15T10:00:00Z").toEpochMilli();
+
+    @Test
+    void ticksInAnyOrderGiveOhlcByTimestamp() {
+        CandleAccumulator accumulator = new CandleAccumulator(PAIR, CandleInterval.ONE_MINUTE, BUCKET);
+
+        accumulator.add(quote(30_000, "1.08520"));
+        accumulator.add(quote(5_000, "1.08500"));
+        accumulator.add(quote(50_000, "1.08480"));
+        accumulator.add(quote(20_000, "1.08560"));
+
+        FxRateCandle candle = accumulator.toCandle();
+
+        assertThat(candle.getBucketStart()).isEqualTo(Instant.ofEpochMilli(BUCKET));
+        assertThat(candle.getInterval()).isEqualTo("1m");
+        assertThat(candle.getOpenTime()).isEqualTo(Instant.ofEpochMilli(BUCKET + 5_000));
+        assertThat(candle.getCloseTime()).isEqualTo(Instant.ofEpochMilli(BUCKET + 50_000));
+        assertThat(candle.getOpen()).isEqualByComparingTo("1.08500");
+        assertThat(candle.getHigh()).isEqualByComparingTo("1.08560");
+        assertThat(candle.getLow()).isEqualByComparingTo("1.08480");
+        assertThat(candle.getClose()).isEqualByComparingTo("1.08480");
+        assertThat(candle.getMid()).isEqualByComparingTo("1.08515");
+        assertThat(candle.getTickCount()).isEqualTo(4);
+    }
+
+    @Test
+    void ticksWithoutPriceAreIgnored() {
+        CandleAccumulator accumulator = new CandleAccumulator(PAIR, CandleInterval.ONE_MINUTE, BUCKET);
+
+        boolean counted = accumulator.add(new FixedPointQuote(PAIR, FixedPoint.DEFAULT_SCALE,
+                FixedPoint.NONE, FixedPoint.NONE, FixedPoint.NONE, BUCKET));
+
+        assertThat(counted).isFalse();
+        assertThat(accumulator.isEmpty()).isTrue();
+        assertThat(accumulator.toCandle()).isNull();
+    }
+
+    @Test
+    void mergingPartialsEqualsAddingEveryTick() {
+        CandleAccumulator all = new CandleAccumulator(PAIR, CandleInterval.ONE_MINUTE, BUCKET);
+        CandleAccumulator first = new CandleAccumulator(PAIR, CandleInterval.ONE_MINUTE, BUCKET);
+        CandleAccumulator second = new CandleAccumulator(PAIR, CandleInterval.ONE_MINUTE, BUCKET);
+
+        FixedPointQuote[] quotes = {
+                quote(5_000, "1.08500"), quote(20_000, "1.08560"), quote(30_000, "1.08520"), quote(50_000, "1.08480")
+        };
+        for (int i = 0; i < quotes.length; i++) {
+            all.add(quotes[i]);
+            // Interleaved, so both partials span the bucket
+            (i % 2 == 0 ? first : second).add(quotes[i]);
+        }
+
+        second.merge(first);
+
+        assertThat(second.toCandle()).isEqualTo(all.toCandle());
+    }
+
+    @Test
+    void mergingAnEmptyAccumulatorChangesNothing() {
+        CandleAccumulator accumulator = new CandleAccumulator(PAIR, CandleInterval.ONE_MINUTE, BUCKET);
+        accumulator.add(quote(5_000, "1.08500"));
+        FxRateCandle before = accumulator.toCandle();
+
+        accumulator.merge(new CandleAccumulator(PAIR, CandleInterval.ONE_MINUTE, BUCKET));
+
+        assertThat(accumulator.toCandle()).isEqualTo(before);
+    }
+
+    @Test
+    void storedCandlesRollUpIntoAWiderBucket() {
+        CandleAccumulator minute0 = new CandleAccumulator(PAIR, CandleInterval.ONE_MINUTE, BUCKET);
+        CandleAccumulator minute1 = new CandleAccumulator(PAIR, CandleInterval.ONE_MINUTE, BUCKET + 60_000);
+        CandleAccumulator hourFromTicks = new CandleAccumulator(PAIR, CandleInterval.ONE_HOUR, BUCKET);
+
+        FixedPointQuote[] minute0Quotes = {quote(5_000, "1.08500"), quote(40_000, "1.08520")};
+        FixedPointQuote[] minute1Quotes = {quote(65_000, "1.08480"), quote(110_000, "1.08560")};
+        for (FixedPointQuote quote : minute0Quotes) {
+            minute0.add(quote);
+            hourFromTicks.add(quote);
+        }
+        for (FixedPointQuote quote : minute1Quotes) {
+            minute1.add(quote);
+            hourFromTicks.add(quote);
+        }
+
+        // Newest first, as rollups may be read in any order
+        CandleAccumulator hour = CandleAccumulator.fromCandle(minute1.toCandle(), CandleInterval.ONE_HOUR);
+        hour.merge(CandleAccumulator.fromCandle(minute0.toCandle(), CandleInterval.ONE_HOUR));
+
+        assertThat(hour.getBucketStartMillis()).isEqualTo(BUCKET);
+        assertThat(hour.toCandle()).isEqualTo(hourFromTicks.toCandle());
+    }
+
+    @Test
+    void emptyStoredCandleGivesAnEmptyAccumulator() {
+        FxRateCandle empty = FxRateCandle.builder()
+                .currencyPair(PAIR)
+                .interval("1m")
+                .bucketStart(Instant.ofEpochMilli(BUCKET + 60_000))
+                .tickCount(0L)
+                .build();
+
+        CandleAccumulator accumulator = CandleAccumulator.fromCandle(empty, CandleInterval.ONE_HOUR);
+
+        assertThat(accumulator.isEmpty()).isTrue();
+        assertThat(accumulator.getBucketStartMillis()).isEqualTo(BUCKET);
+    }
+
+    private static FixedPointQuote quote(long offsetMillis, String price) {
+        long mantissa = FixedPoint.toMantissa(new BigDecimal(price), FixedPoint.DEFAULT_SCALE);
+        return new FixedPointQuote(PAIR, FixedPoint.DEFAULT_SCALE, mantissa, FixedPoint.NONE, FixedPoint.NONE,
+                BUCKET + offsetMillis);
+    }
+}
@@ -0,0 +1,101 @@
+package com.fexco.fxrates.common.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FixedPointTest {
+
+    @Test
+    void scaleDependsOnJpy() {
+        assertThat(FixedPoint.scaleFor("EURUSD")).isEqualTo(FixedPoint.DEFAULT_SCALE);
+        assertThat(FixedPoint.scaleFor("USDJPY")).isEqualTo(FixedPoint.JPY_SCALE);
+        assertThat(FixedPoint.scaleFor(null)).isEqualTo(FixedPoint.DEFAULT_SCALE);
+    }
+
+    @Test
+    void mantissaRoundTripIsExactWithinScale() {
+        BigDecimal price = new BigDecimal("1.08515");
+
+        long mantissa = FixedPoint.toMantissa(price, 8);
+
+        assertThat(mantissa).isEqualTo(108_515_000L);
+        assertThat(FixedPoint.toBigDecimal(mantissa, 8)).isEqualByComparingTo(price);
+    }
+
+    @Test
+    void nullAndNoneMapToEachOther() {
+        assertThat(FixedPoint.toMantissa(null, 8)).isEqualTo(FixedPoint.NONE);
+        assertThat(FixedPoint.toBigDecimal(FixedPoint.NONE, 8)).isNull();
+        assertThat(FixedPoint.rescale(FixedPoint.NONE, 8, 6)).isEqualTo(FixedPoint.NONE);
+    }
+
+    @Test
+    void extraDecimalsAreRoundedHalfUpAndDetected() {
+        BigDecimal price = new BigDecimal("156.4212345");
+
+        assertThat(FixedPoint.isExact(price, FixedPoint.JPY_SCALE)).isFalse();
+        assertThat(FixedPoint.toMantissa(price, FixedPoint.JPY_SCALE)).isEqualTo(156_421_235L);
+    }
+
+    @Test
+    void trailingZerosDoNotCountAsLostPrecision() {
+        assertThat(FixedPoint.isExact(new BigDecimal("156.42000000000"), FixedPoint.JPY_SCALE)).isTrue();
+        assertThat(FixedPoint.isExact(new BigDecimal("1.08500000"), FixedPoint.DEFAULT_SCALE)).isTrue();
+        assertThat(FixedPoint.isExact(BigDecimal.ZERO.setScale(12), FixedPoint.DEFAULT_SCALE)).isTrue();
+        assertThat(FixedPoint.isExact(null, FixedPoint.DEFAULT_SCALE)).isTrue();
+    }
+
+    @Test
+    void mantissaOutsideLongRangeThrows() {
+        assertThatThrownBy(() -> FixedPoint.toMantissa(new BigDecimal("1e12"), 8))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void midRoundsHalfUp() {
+        assertThat(FixedPoint.mid(108_510_000L, 108_520_000L)).isEqualTo(108_515_000L);
+        assertThat(FixedPoint.mid(3L, 4L)).isEqualTo(4L);
+        assertThat(FixedPoint.mid(-4L, -3L)).isEqualTo(-3L);
+    }
+
+    @Test
+    void rescaleRoundsHalfUpWhenDroppingDigits() {
+        assertThat(FixedPoint.rescale(156_421_235L, 6, 8)).isEqualTo(15_642_123_500L);
+        assertThat(FixedPoint.rescale(15_642_123_500L, 8, 6)).isEqualTo(156_421_235L);
+        assertThat(FixedPoint.rescale(108_515_050L, 8, 6)).isEqualTo(1_085_151L);
+        assertThat(FixedPoint.rescale(108_515_049L, 8, 6)).isEqualTo(1_085_150L);
+    }
+
+    @Test
+    void percentChange() {
+        assertThat(FixedPoint.percentChange(100_000_000L, 105_000_000L)).isEqualTo(5.0);
+        assertThat(FixedPoint.percentChange(100_000_000L, 95_000_000L)).isEqualTo(5.0);
+    }
+
+    @Test
+    void quoteRoundTripsThroughFxRate() {
+        FxRate rate = FxRate.builder()
+                .currencyPair("USDJPY")
+                .rate(new BigDecimal("156.42"))
+                .bid(new BigDecimal("156.41"))
+                .ask(new BigDecimal("156.43"))
+                .timestamp(Instant.ofEpochMilli(1_705_315_800_250L))
+                .build();
+
+        FixedPointQuote quote = FixedPointQuote.from(rate);
+        FxRate back = quote.toFxRate();
+
+        assertThat(quote.getScale()).isEqualTo(FixedPoint.JPY_SCALE);
+        assertThat(quote.getMid()).isEqualTo(156_420_000L);
+        assertThat(quote.getSpread()).isEqualTo(20_000L);
+        assertThat(back.getRate()).isEqualByComparingTo(rate.getRate());
+        assertThat(back.getBid()).isEqualByComparingTo(rate.getBid());
+        assertThat(back.getAsk()).isEqualByComparingTo(rate.getAsk());
+        assertThat(back.getTimestamp()).isEqualTo(rate.getTimestamp());
+    }
+}
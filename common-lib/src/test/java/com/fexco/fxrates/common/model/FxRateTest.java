@@ -0,0 +1,49 @@
+package com.fexco.fxrates.common.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FxRateTest {
+
+    @Test
+    void midRateKeepsTheQuoteScale() {
+        FxRate rate = FxRate.builder()
+                .bid(new BigDecimal("1.0845"))
+                .ask(new BigDecimal("1.0857"))
+                .build();
+
+        assertThat(rate.getMidRate()).isEqualTo(new BigDecimal("1.0851"));
+    }
+
+    @Test
+    void midRateIsExactWhenItNeedsAnExtraDigit() {
+        FxRate rate = FxRate.builder()
+                .bid(new BigDecimal("1.0850"))
+                .ask(new BigDecimal("1.0851"))
+                .build();
+
+        assertThat(rate.getMidRate()).isEqualTo(new BigDecimal("1.08505"));
+    }
+
+    @Test
+    void midRateIsExactForMixedScales() {
+        FxRate rate = FxRate.builder()
+                .bid(new BigDecimal("1.0851"))
+                .ask(new BigDecimal("1.08515"))
+                .build();
+
+        assertThat(rate.getMidRate()).isEqualTo(new BigDecimal("1.085125"));
+    }
+
+    @Test
+    void midRateFallsBackToRate() {
+        FxRate rate = FxRate.builder()
+                .rate(new BigDecimal("1.0850"))
+                .build();
+
+        assertThat(rate.getMidRate()).isEqualTo(new BigDecimal("1.0850"));
+    }
+}
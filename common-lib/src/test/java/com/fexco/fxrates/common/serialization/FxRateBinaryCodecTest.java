@@ -0,0 +1,137 @@
+package com.fexco.fxrates.common.serialization;
+
+import com.fexco.fxrates.common.model.FxRate;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FxRateBinaryCodecTest {
+
+    @Test
+    void fullRateRoundTrips() {
+        FxRate rate = FxRate.builder()
+                .id("EURUSD_1705315800250")
+                .fromCurrency("EUR")
+                .toCurrency("USD")
+                .currencyPair("EURUSD")
+                .rate(new BigDecimal("1.0850"))
+                .bid(new BigDecimal("1.08495"))
+                .ask(new BigDecimal("1.08505"))
+                .timestamp(Instant.ofEpochMilli(1_705_315_800_250L))
+                .createdAt(Instant.ofEpochMilli(1_705_315_800_300L))
+                .updatedAt(Instant.ofEpochMilli(1_705_315_800_310L))
+                .confidenceScore(0.95)
+                .ttlSeconds(3600)
+                .source("Aggregated(Alpha Vantage,Reuters)")
+                .build();
+
+        byte[] bytes = FxRateBinaryCodec.encode(rate);
+        FxRate decoded = FxRateBinaryCodec.decode(bytes);
+
+        assertThat(bytes.length).isLessThan(150);
+        assertThat(decoded.getId()).isEqualTo(rate.getId());
+        assertThat(decoded.getFromCurrency()).isEqualTo("EUR");
+        assertThat(decoded.getToCurrency()).isEqualTo("USD");
+        assertThat(decoded.getCurrencyPair()).isEqualTo("EURUSD");
+        assertThat(decoded.getRate()).isEqualByComparingTo(rate.getRate());
+        assertThat(decoded.getBid()).isEqualByComparingTo(rate.getBid());
+        assertThat(decoded.getAsk()).isEqualByComparingTo(rate.getAsk());
+        assertThat(decoded.getTimestamp()).isEqualTo(rate.getTimestamp());
+        assertThat(decoded.getCreatedAt()).isEqualTo(rate.getCreatedAt());
+        assertThat(decoded.getUpdatedAt()).isEqualTo(rate.getUpdatedAt());
+        assertThat(decoded.getConfidenceScore()).isEqualTo(0.95);
+        assertThat(decoded.getTtlSeconds()).isEqualTo(3600);
+        assertThat(decoded.getSource()).isEqualTo(rate.getSource());
+    }
+
+    @Test
+    void absentFieldsStayAbsent() {
+        FxRate rate = FxRate.builder()
+                .currencyPair("USDJPY")
+                .rate(new BigDecimal("156.42"))
+                .build();
+
+        FxRate decoded = FxRateBinaryCodec.decode(FxRateBinaryCodec.encode(rate));
+
+        assertThat(decoded.getRate()).isEqualByComparingTo("156.42");
+        assertThat(decoded.getBid()).isNull();
+        assertThat(decoded.getAsk()).isNull();
+        assertThat(decoded.getTimestamp()).isNull();
+        assertThat(decoded.getConfidenceScore()).isNull();
+        assertThat(decoded.getTtlSeconds()).isNull();
+        assertThat(decoded.getId()).isNull();
+        assertThat(decoded.getSource()).isNull();
+    }
+
+    @Test
+    void pricesBeyondThePairScaleAreKeptExactly() {
+        FxRate rate = FxRate.builder()
+                .currencyPair("EURUSD")
+                .rate(new BigDecimal("1.085012345678"))
+                .build();
+
+        FxRate decoded = FxRateBinaryCodec.decode(FxRateBinaryCodec.encode(rate));
+
+        assertThat(decoded.getRate()).isEqualByComparingTo(rate.getRate());
+    }
+
+    @Test
+    void pricesTooPreciseForALongFallBackToThePairScale() {
+        FxRate rate = FxRate.builder()
+                .currencyPair("EURUSD")
+                .rate(new BigDecimal("1.08501234567891234"))
+                .build();
+
+        FxRate decoded = FxRateBinaryCodec.decode(FxRateBinaryCodec.encode(rate));
+
+        assertThat(decoded.getRate()).isEqualByComparingTo("1.08501235");
+    }
+
+    @Test
+    void decodedCurrencyCodesAreShared() {
+        FxRate rate = FxRate.builder().currencyPair("GBPUSD").rate(BigDecimal.ONE).build();
+
+        FxRate first = FxRateBinaryCodec.decode(FxRateBinaryCodec.encode(rate));
+        FxRate second = FxRateBinaryCodec.decode(FxRateBinaryCodec.encode(rate));
+
+        assertThat(second.getCurrencyPair()).isSameAs(first.getCurrencyPair());
+        assertThat(second.getToCurrency()).isSameAs(first.getToCurrency());
+    }
+
+    @Test
+    void jsonValuesAreRejectedAsAnotherVersion() {
+        byte[] json = "{\"currencyPair\":\"EURUSD\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> FxRateBinaryCodec.decode(json))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("version");
+    }
+
+    @Test
+    void truncatedBytesAreRejected() {
+        FxRate rate = FxRate.builder()
+                .currencyPair("EURUSD")
+                .rate(new BigDecimal("1.0850"))
+                .source("Reuters")
+                .build();
+        byte[] bytes = FxRateBinaryCodec.encode(rate);
+
+        assertThatThrownBy(() -> FxRateBinaryCodec.decode(Arrays.copyOf(bytes, bytes.length - 3)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Truncated");
+    }
+
+    @Test
+    void invalidPairIsRejected() {
+        FxRate rate = FxRate.builder().currencyPair("EUR").rate(BigDecimal.ONE).build();
+
+        assertThatThrownBy(() -> FxRateBinaryCodec.encode(rate))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -2,7 +2,6 @@ package com.fexco.fxrates.api;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.scheduling.annotation.EnableAsync;
 
 /**
@@ -17,7 +16,6 @@ import org.springframework.scheduling.annotation.EnableAsync;
  * - Comprehensive monitoring with Application Insights
  */
 @SpringBootApplication
-@EnableCaching
 @EnableAsync
 public class FxRatesApiApplication {
 
@@ -0,0 +1,44 @@
+package com.fexco.fxrates.api.cache;
+
+import com.fexco.fxrates.common.model.FxRate;
+import com.fexco.fxrates.common.serialization.FxRateBinaryCodec;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Redis value serializer storing FxRate in the compact binary layout of FxRateBinaryCodec
+ *
+ * Values written by the JSON serializer are rejected as an unsupported version
+ * and therefore treated as cache misses, which makes switching formats safe.
+ */
+public class CompactFxRateRedisSerializer implements RedisSerializer<FxRate> {
+
+    @Override
+    public byte[] serialize(FxRate rate) throws SerializationException {
+        if (rate == null) {
+            return null;
+        }
+        try {
+            return FxRateBinaryCodec.encode(rate);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Could not encode FxRate " + rate.getCurrencyPair(), e);
+        }
+    }
+
+    @Override
+    public FxRate deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return FxRateBinaryCodec.decode(bytes);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Could not decode FxRate", e);
+        }
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return FxRate.class;
+    }
+}
@@ -0,0 +1,158 @@
+package com.fexco.fxrates.api.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fexco.fxrates.common.constant.CacheConstants;
+import com.fexco.fxrates.common.model.FxRate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Redis cache of historical rates in fixed, epoch-aligned time buckets
+ *
+ * A bucket is only cached once it has closed (its end plus a grace period for late writes
+ * has passed), so an entry never changes and is shared by every query overlapping it,
+ * whatever the exact range. The open head bucket is always read live.
+ * Key: fx:history:{currencyPair}:{bucketStartMillis}, value: the bucket's rates as a JSON array.
+ */
+@Component
+@Slf4j
+public class FxRateHistoryCache {
+
+    private static final TypeReference<List<FxRate>> RATE_LIST = new TypeReference<>() {
+    };
+
+    private final RedisTemplate<String, String> stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final long bucketMillis;
+    private final long closeGraceMillis;
+    private final int maxBuckets;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public FxRateHistoryCache(
+            RedisTemplate<String, String> stringRedisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.fx-rates.history.cache.enabled:true}") boolean enabled,
+            @Value("${app.fx-rates.history.cache.bucket-minutes:60}") int bucketMinutes,
+            @Value("${app.fx-rates.history.cache.close-grace-seconds:30}") int closeGraceSeconds,
+            @Value("${app.fx-rates.history.cache.max-buckets:168}") int maxBuckets
+    ) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.bucketMillis = Duration.ofMinutes(bucketMinutes).toMillis();
+        this.closeGraceMillis = Duration.ofSeconds(closeGraceSeconds).toMillis();
+        this.maxBuckets = maxBuckets;
+
+        this.hitCounter = Counter.builder("fx.history.cache.buckets")
+                .tag("result", "hit")
+                .description("History cache bucket lookups")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("fx.history.cache.buckets")
+                .tag("result", "miss")
+                .description("History cache bucket lookups")
+                .register(meterRegistry);
+
+        log.info("History cache {} (bucket: {}m, close grace: {}s, max buckets per query: {})",
+                enabled ? "enabled" : "disabled", bucketMinutes, closeGraceSeconds, maxBuckets);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    /**
+     * Start of the bucket containing an instant, in epoch millis
+     */
+    public long bucketStartMillis(long epochMillis) {
+        return Math.floorDiv(epochMillis, bucketMillis) * bucketMillis;
+    }
+
+    /**
+     * Start of the oldest bucket that may still receive rates; rates from there on are read live
+     */
+    public long openBucketsStartMillis(long nowMillis) {
+        return bucketStartMillis(nowMillis - closeGraceMillis - bucketMillis) + bucketMillis;
+    }
+
+    /**
+     * Cached rates of several buckets of a pair with a single MGET
+     *
+     * @return One entry per bucket start: its rates (newest first), or null if not cached
+     */
+    public List<List<FxRate>> getBuckets(String currencyPair, List<Long> bucketStarts) {
+        List<List<FxRate>> buckets = new ArrayList<>(Collections.nCopies(bucketStarts.size(), null));
+        try {
+            List<String> cacheKeys = bucketStarts.stream()
+                    .map(bucketStart -> cacheKey(currencyPair, bucketStart))
+                    .collect(Collectors.toList());
+
+            List<String> values = stringRedisTemplate.opsForValue().multiGet(cacheKeys);
+            if (values == null) {
+                missCounter.increment(bucketStarts.size());
+                return buckets;
+            }
+
+            for (int i = 0; i < bucketStarts.size(); i++) {
+                String value = values.get(i);
+                if (value != null) {
+                    buckets.set(i, objectMapper.readValue(value, RATE_LIST));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Error reading {} history buckets of {} from cache: {}",
+                    bucketStarts.size(), currencyPair, e.getMessage());
+        }
+
+        long hits = buckets.stream().filter(Objects::nonNull).count();
+        hitCounter.increment(hits);
+        missCounter.increment(bucketStarts.size() - hits);
+        return buckets;
+    }
+
+    /**
+     * Cache the rates of a closed bucket (an empty list is cached too)
+     */
+    public void putBucket(String currencyPair, long bucketStart, List<FxRate> rates) {
+        try {
+            stringRedisTemplate.opsForValue().set(
+                    cacheKey(currencyPair, bucketStart),
+                    objectMapper.writeValueAsString(rates),
+                    CacheConstants.FX_RATE_HISTORY_TTL_SECONDS,
+                    TimeUnit.SECONDS
+            );
+            log.debug("Cached {} rates of {} history bucket {}", rates.size(), currencyPair, bucketStart);
+        } catch (Exception e) {
+            log.warn("Error writing history bucket {} of {} to cache: {}", bucketStart, currencyPair, e.getMessage());
+        }
+    }
+
+    private static String cacheKey(String currencyPair, long bucketStart) {
+        return CacheConstants.FX_RATE_HISTORY_CACHE_PREFIX + currencyPair + ":" + bucketStart;
+    }
+}
@@ -0,0 +1,219 @@
+package com.fexco.fxrates.api.cache;
+
+import com.fexco.fxrates.common.event.FxRateUpdatedEvent;
+import com.fexco.fxrates.common.model.FxRate;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process (L1) cache of the latest FX rate per currency pair
+ *
+ * Sits in front of Redis so that hot pairs are served without a network round trip.
+ * - Bounded by max-size (rarely requested pairs are evicted first)
+ * - Each entry expires after the rate's own ttlSeconds, or with the Redis entry it was read from
+ * - Optionally, expired entries are retained for a stale-while-revalidate window
+ *   and served through {@link #getStale} while a refresh runs
+ * - Hit, miss and eviction counters are exported via Micrometer as cache.* metrics
+ */
+@Component
+@Slf4j
+public class FxRateNearCache {
+
+    public static final String CACHE_NAME = "fx-rates-near";
+
+    private final boolean enabled;
+    private final long staleWindowNanos;
+    private final Cache<String, FxRate> cache;
+
+    public FxRateNearCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.fx-rates.cache.near.enabled:true}") boolean enabled,
+            @Value("${app.fx-rates.cache.near.max-size:1000}") long maxSize,
+            @Value("${app.fx-rates.cache.near.default-ttl-seconds:5}") int defaultTtlSeconds,
+            @Value("${app.fx-rates.cache.near.stale-while-revalidate-seconds:0}") int staleWhileRevalidateSeconds
+    ) {
+        this.enabled = enabled;
+        this.staleWindowNanos = TimeUnit.SECONDS.toNanos(staleWhileRevalidateSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new RateTtlExpiry(defaultTtlSeconds, staleWindowNanos))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+
+        log.info("Near cache initialized (enabled: {}, max-size: {}, default TTL: {}s, stale-while-revalidate: {}s)",
+                enabled, maxSize, defaultTtlSeconds, staleWhileRevalidateSeconds);
+    }
+
+    /**
+     * Get the cached rate for a currency pair
+     *
+     * @param currencyPair Currency pair (e.g., "EURUSD")
+     * @return Cached rate, or null if absent or expired
+     */
+    public FxRate get(String currencyPair) {
+        if (!enabled) {
+            return null;
+        }
+        FxRate rate = cache.getIfPresent(currencyPair);
+        return rate != null && isFresh(currencyPair) ? rate : null;
+    }
+
+    /**
+     * Get the cached rate for a currency pair even if it has expired,
+     * as long as it is still within the stale-while-revalidate window
+     *
+     * @return Cached rate, or null if absent or past the stale window
+     */
+    public FxRate getStale(String currencyPair) {
+        if (!enabled || staleWindowNanos == 0) {
+            return null;
+        }
+        return cache.policy().getIfPresentQuietly(currencyPair);
+    }
+
+    public boolean isStaleWhileRevalidateEnabled() {
+        return enabled && staleWindowNanos > 0;
+    }
+
+    /**
+     * Cache a rate, keeping the existing entry if it is newer
+     */
+    public void put(String currencyPair, FxRate rate) {
+        if (!enabled || rate == null) {
+            return;
+        }
+        cache.asMap().merge(currencyPair, rate, FxRateNearCache::newerOf);
+    }
+
+    /**
+     * Cache a pushed rate with an explicit TTL instead of the rate's own ttlSeconds
+     *
+     * Used by the cache updater so that entries outlive the gap between two ingestion ticks.
+     */
+    public void put(String currencyPair, FxRate rate, int ttlSeconds) {
+        putExpiringAfter(currencyPair, rate, TimeUnit.SECONDS.toMillis(ttlSeconds));
+    }
+
+    /**
+     * Cache a rate read from Redis so that it expires with the Redis entry
+     *
+     * @param ttlMillis Remaining TTL of the Redis entry; without one (e.g. no expiry set)
+     *                  the rate's own ttlSeconds applies
+     */
+    public void putFromRedis(String currencyPair, FxRate rate, Long ttlMillis) {
+        if (ttlMillis == null || ttlMillis <= 0) {
+            put(currencyPair, rate);
+        } else {
+            putExpiringAfter(currencyPair, rate, ttlMillis);
+        }
+    }
+
+    private void putExpiringAfter(String currencyPair, FxRate rate, long ttlMillis) {
+        if (!enabled || rate == null) {
+            return;
+        }
+        FxRate cached = cache.asMap().merge(currencyPair, rate, FxRateNearCache::newerOf);
+        if (cached == rate) {
+            cache.policy().expireVariably().ifPresent(expiration ->
+                    expiration.setExpiresAfter(currencyPair, TimeUnit.MILLISECONDS.toNanos(ttlMillis) + staleWindowNanos,
+                            TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * Apply an FX rate update event, replacing any older cached rate for the pair
+     */
+    public void onRateUpdated(FxRateUpdatedEvent event) {
+        FxRate rate = event.getFxRate();
+        if (rate == null || rate.getCurrencyPair() == null) {
+            return;
+        }
+        put(rate.getCurrencyPair(), rate);
+    }
+
+    /**
+     * Remove a single currency pair from the cache
+     */
+    public void invalidate(String currencyPair) {
+        cache.invalidate(currencyPair);
+    }
+
+    /**
+     * Remove all entries from the cache
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * An entry is fresh while its remaining lifetime exceeds the stale window
+     */
+    private boolean isFresh(String currencyPair) {
+        if (staleWindowNanos == 0) {
+            return true;
+        }
+        return cache.policy().expireVariably()
+                .flatMap(expiration -> expiration.getExpiresAfter(currencyPair))
+                .map(remaining -> remaining.toNanos() > staleWindowNanos)
+                .orElse(false);
+    }
+
+    /**
+     * Prefer the rate with the later provider timestamp so that a late
+     * Redis/Cosmos read never overwrites a fresher update
+     */
+    private static FxRate newerOf(FxRate existing, FxRate candidate) {
+        if (existing.getTimestamp() == null || candidate.getTimestamp() == null) {
+            return candidate;
+        }
+        return candidate.getTimestamp().isBefore(existing.getTimestamp()) ? existing : candidate;
+    }
+
+    /**
+     * Expires each entry after the rate's ttlSeconds (falling back to the configured default)
+     * plus the stale-while-revalidate window
+     */
+    private static final class RateTtlExpiry implements Expiry<String, FxRate> {
+
+        private final long defaultTtlNanos;
+        private final long staleWindowNanos;
+
+        private RateTtlExpiry(int defaultTtlSeconds, long staleWindowNanos) {
+            this.defaultTtlNanos = TimeUnit.SECONDS.toNanos(defaultTtlSeconds);
+            this.staleWindowNanos = staleWindowNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, FxRate rate, long currentTime) {
+            Integer ttlSeconds = rate.getTtlSeconds();
+            long ttlNanos = ttlSeconds != null && ttlSeconds > 0
+                    ? TimeUnit.SECONDS.toNanos(ttlSeconds)
+                    : defaultTtlNanos;
+            return ttlNanos + staleWindowNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, FxRate rate, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, rate, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, FxRate rate, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
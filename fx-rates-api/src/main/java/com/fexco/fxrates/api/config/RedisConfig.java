@@ -2,22 +2,31 @@ package com.fexco.fxrates.api.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fexco.fxrates.api.cache.CompactFxRateRedisSerializer;
 import com.fexco.fxrates.common.model.FxRate;
-import org.springframework.cache.annotation.EnableCaching;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
  * Configuration for Redis caching
  */
 @Configuration
-@EnableCaching
+@Slf4j
 public class RedisConfig {
 
+    /**
+     * Value format for cached rates: json | binary
+     */
+    @Value("${app.fx-rates.cache.serializer:json}")
+    private String valueSerializer;
+
     @Bean
     public RedisTemplate<String, FxRate> redisTemplate(RedisConnectionFactory connectionFactory) {
         RedisTemplate<String, FxRate> template = new RedisTemplate<>();
@@ -27,11 +36,8 @@ public class RedisConfig {
         template.setKeySerializer(new StringRedisSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
 
-        // Use JSON serializer for values
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-
-        Jackson2JsonRedisSerializer<FxRate> serializer = new Jackson2JsonRedisSerializer<>(objectMapper, FxRate.class);
+        // Use the configured serializer for values
+        RedisSerializer<FxRate> serializer = fxRateValueSerializer();
 
         template.setValueSerializer(serializer);
         template.setHashValueSerializer(serializer);
@@ -55,4 +61,17 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    private RedisSerializer<FxRate> fxRateValueSerializer() {
+        log.info("Using {} serializer for cached FX rates", valueSerializer);
+
+        if ("binary".equalsIgnoreCase(valueSerializer)) {
+            return new CompactFxRateRedisSerializer();
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+
+        return new Jackson2JsonRedisSerializer<>(objectMapper, FxRate.class);
+    }
 }
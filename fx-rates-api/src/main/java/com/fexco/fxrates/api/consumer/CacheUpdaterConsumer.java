@@ -0,0 +1,232 @@
+package com.fexco.fxrates.api.consumer;
+
+import com.azure.messaging.eventhubs.EventHubClientBuilder;
+import com.azure.messaging.eventhubs.EventHubConsumerAsyncClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fexco.fxrates.api.service.FxRateService;
+import com.fexco.fxrates.api.store.TickStore;
+import com.fexco.fxrates.common.constant.CacheConstants;
+import com.fexco.fxrates.common.constant.EventHubConstants;
+import com.fexco.fxrates.common.event.FxRateUpdatedEvent;
+import com.fexco.fxrates.common.model.FxRate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Event Hub consumer that keeps the rate caches warm as rates are ingested
+ *
+ * Every pod must see every update so that its near cache stays fresh. Update sources
+ * (app.fx-rates.cache-updater.source):
+ * - eventhub: the pod reads all partitions from the latest position (no checkpointing, no
+ *   partition ownership). Event Hubs allows 5 readers per partition per consumer group, so
+ *   this only suits up to 5 pods.
+ * - redis: the pod subscribes to the Redis updates channel that the websocket relay pods
+ *   republish Event Hub events on, so any number of pods adds no Event Hub readers. The
+ *   relay runs several replicas, so repeated event ids are skipped.
+ *
+ * Events are buffered briefly and written to Redis in one pipeline per batch, with a TTL
+ * longer than the ingestion interval so that reads do not fall through to Cosmos DB between
+ * two ticks. When enabled, the {@link TickStore} is fed from the same batches.
+ */
+@Component
+@Slf4j
+public class CacheUpdaterConsumer {
+
+    // Enough to cover the relay replicas' copies of several ingestion cycles
+    private static final int RECENT_EVENT_IDS = 4096;
+
+    private final String connectionString;
+    private final String eventHubName;
+    private final String consumerGroup;
+    private final boolean enabled;
+    private final boolean redisSource;
+    private final int batchSize;
+    private final Duration batchWindow;
+    private final FxRateService fxRateService;
+    private final TickStore tickStore;
+    private final ObjectMapper objectMapper;
+    private final RedisConnectionFactory redisConnectionFactory;
+
+    // Ids of recently seen events (redis source only), oldest first
+    private final Map<String, Boolean> recentEventIds = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > RECENT_EVENT_IDS;
+        }
+    };
+
+    private EventHubConsumerAsyncClient consumerClient;
+    private RedisMessageListenerContainer listenerContainer;
+    private Disposable subscription;
+
+    public CacheUpdaterConsumer(
+            @Value("${azure.eventhub.connection-string:}") String connectionString,
+            @Value("${azure.eventhub.topic:fx-rates-updates}") String eventHubName,
+            @Value("${azure.eventhub.consumer-group:" + EventHubConstants.CACHE_UPDATER_CONSUMER_GROUP + "}") String consumerGroup,
+            @Value("${app.fx-rates.cache-updater.enabled:true}") boolean enabled,
+            @Value("${app.fx-rates.cache-updater.source:eventhub}") String source,
+            @Value("${app.fx-rates.cache-updater.batch-size:100}") int batchSize,
+            @Value("${app.fx-rates.cache-updater.batch-window-ms:50}") long batchWindowMs,
+            FxRateService fxRateService,
+            TickStore tickStore,
+            ObjectMapper objectMapper,
+            RedisConnectionFactory redisConnectionFactory
+    ) {
+        this.connectionString = connectionString;
+        this.eventHubName = eventHubName;
+        this.consumerGroup = consumerGroup;
+        this.enabled = enabled;
+        this.redisSource = "redis".equalsIgnoreCase(source);
+        this.batchSize = batchSize;
+        this.batchWindow = Duration.ofMillis(batchWindowMs);
+        this.fxRateService = fxRateService;
+        this.tickStore = tickStore;
+        this.objectMapper = objectMapper;
+        this.redisConnectionFactory = redisConnectionFactory;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Cache updater disabled");
+            return;
+        }
+
+        Flux<FxRate> rates = redisSource ? receiveFromRedis() : receiveFromEventHub();
+        if (rates == null) {
+            return;
+        }
+
+        subscription = rates
+                .bufferTimeout(batchSize, batchWindow)
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(this::applyBatch)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> {
+                            log.error("Error in cache updater, reconnecting: {}", signal.failure().getMessage());
+                            // Reconnecting resumes at the latest event, so ticks in between are missed
+                            tickStore.resetCoverage();
+                        }))
+                .subscribe();
+
+        log.info("Cache updater started successfully");
+    }
+
+    /**
+     * Rates read directly from all Event Hub partitions, or null if Event Hubs is not configured
+     */
+    private Flux<FxRate> receiveFromEventHub() {
+        if (connectionString == null || connectionString.isEmpty()) {
+            log.warn("Event Hub connection string not configured. Cache updater disabled.");
+            return null;
+        }
+
+        log.info("Starting cache updater for: {} with consumer group: {}", eventHubName, consumerGroup);
+
+        consumerClient = new EventHubClientBuilder()
+                .connectionString(connectionString, eventHubName)
+                .consumerGroup(consumerGroup)
+                .buildAsyncConsumerClient();
+
+        // receive(false) starts every partition at the latest event
+        return consumerClient.receive(false)
+                .flatMap(partitionEvent -> toFxRate(partitionEvent.getData().getBodyAsString(),
+                        "partition " + partitionEvent.getPartitionContext().getPartitionId()));
+    }
+
+    /**
+     * Rates relayed on the Redis updates channel
+     */
+    private Flux<FxRate> receiveFromRedis() {
+        log.info("Starting cache updater on Redis channel: {}", CacheConstants.FX_RATE_UPDATES_CHANNEL);
+
+        // Not cancelled with its subscriber, so the pipeline can resubscribe after an error
+        Sinks.Many<String> events = Sinks.many().multicast().onBackpressureBuffer(Queues.SMALL_BUFFER_SIZE, false);
+
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(redisConnectionFactory);
+        // A single dispatch thread, so events are emitted to the sink one at a time
+        listenerContainer.setTaskExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-updater-redis");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        listenerContainer.addMessageListener(
+                (message, pattern) -> events.tryEmitNext(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CacheConstants.FX_RATE_UPDATES_CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+
+        return events.asFlux()
+                .flatMap(eventData -> toFxRate(eventData, "Redis"));
+    }
+
+    /**
+     * Deserialize an event, skipping anything that is not a rate update or was already seen
+     */
+    private Mono<FxRate> toFxRate(String eventData, String origin) {
+        try {
+            FxRateUpdatedEvent event = objectMapper.readValue(eventData, FxRateUpdatedEvent.class);
+            if (redisSource && event.getEventId() != null && recentEventIds.put(event.getEventId(), Boolean.TRUE) != null) {
+                return Mono.empty();
+            }
+            return Mono.justOrEmpty(event.getFxRate());
+        } catch (Exception e) {
+            log.error("Error deserializing event from {}", origin, e);
+            return Mono.empty();
+        }
+    }
+
+    /**
+     * Write a batch of rates to Redis, the near cache and the tick store
+     */
+    private void applyBatch(List<FxRate> rates) {
+        try {
+            fxRateService.refreshCache(rates);
+            log.debug("Cache updater applied {} rates", rates.size());
+        } catch (Exception e) {
+            log.error("Error applying {} rates to cache", rates.size(), e);
+        }
+
+        try {
+            tickStore.append(rates);
+        } catch (Exception e) {
+            log.error("Error appending {} rates to the tick store", rates.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (listenerContainer != null) {
+            listenerContainer.stop();
+        }
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        if (consumerClient != null) {
+            log.info("Stopping cache updater");
+            consumerClient.close();
+        }
+    }
+}
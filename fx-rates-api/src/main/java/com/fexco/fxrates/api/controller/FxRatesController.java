@@ -1,8 +1,12 @@
 package com.fexco.fxrates.api.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fexco.fxrates.api.service.FxRateService;
+import com.fexco.fxrates.api.service.HistoryQuery;
 import com.fexco.fxrates.common.dto.*;
 import com.fexco.fxrates.common.model.FxRate;
+import com.fexco.fxrates.common.model.FxRateCandle;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -10,13 +14,18 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -31,7 +40,10 @@ import java.util.List;
 @Tag(name = "FX Rates API", description = "Endpoints for querying foreign exchange rates")
 public class FxRatesController {
 
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final FxRateService fxRateService;
+    private final ObjectMapper objectMapper;
 
     @Operation(
             summary = "Get FX rate for a currency pair",
@@ -138,6 +150,129 @@ public class FxRatesController {
         return ResponseEntity.ok(historicalRates);
     }
 
+    @Operation(
+            summary = "Get OHLC candles",
+            description = "Aggregates historical mid prices into open/high/low/close candles with the average " +
+                    "mid and tick count per bucket. Buckets are aligned to UTC; empty buckets are omitted."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved candles"),
+            @ApiResponse(responseCode = "400", description = "Invalid interval, dates or range too wide")
+    })
+    @GetMapping("/history/{from}/{to}/candles")
+    public ResponseEntity<List<FxRateCandle>> getCandles(
+            @Parameter(description = "Source currency code", example = "EUR")
+            @PathVariable @Pattern(regexp = "[A-Z]{3}") String from,
+
+            @Parameter(description = "Target currency code", example = "USD")
+            @PathVariable @Pattern(regexp = "[A-Z]{3}") String to,
+
+            @Parameter(description = "Bucket size: 1m, 5m, 1h or 1d", example = "5m")
+            @RequestParam(defaultValue = "1m") String interval,
+
+            @Parameter(description = "Start date (ISO 8601)", example = "2024-01-01T00:00:00Z")
+            @RequestParam(required = false) String startDate,
+
+            @Parameter(description = "End date (ISO 8601)", example = "2024-01-31T23:59:59Z")
+            @RequestParam(required = false) String endDate
+    ) {
+        log.info("Received candles request for {}{} (interval: {}, start: {}, end: {})",
+                from, to, interval, startDate, endDate);
+
+        List<FxRateCandle> candles = fxRateService.getCandles(from, to, interval, startDate, endDate);
+
+        log.info("Returned {} {} candles for {}{}", candles.size(), interval, from, to);
+
+        return ResponseEntity.ok(candles);
+    }
+
+    @Operation(
+            summary = "Stream historical FX rates",
+            description = "Streams historical exchange rates for a currency pair, newest first, page by page " +
+                    "as they are read from the database. format=ndjson (default) writes one rate per line and, " +
+                    "if more rates remain, a final {\"nextCursor\": ...} line; format=json writes " +
+                    "{\"rates\": [...], \"nextCursor\": ...}. Pass nextCursor as cursor to resume."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaming historical rates"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters or cursor")
+    })
+    @GetMapping(value = "/history/{from}/{to}/stream", produces = {NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamHistoricalRates(
+            @Parameter(description = "Source currency code", example = "EUR")
+            @PathVariable @Pattern(regexp = "[A-Z]{3}") String from,
+
+            @Parameter(description = "Target currency code", example = "USD")
+            @PathVariable @Pattern(regexp = "[A-Z]{3}") String to,
+
+            @Parameter(description = "Start date (ISO 8601)", example = "2024-01-01T00:00:00Z")
+            @RequestParam(required = false) String startDate,
+
+            @Parameter(description = "End date (ISO 8601)", example = "2024-01-31T23:59:59Z")
+            @RequestParam(required = false) String endDate,
+
+            @Parameter(description = "Cursor from a previous response; replaces startDate/endDate")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Rates per database page", example = "500")
+            @RequestParam(required = false) @Positive Integer pageSize,
+
+            @Parameter(description = "Stop after the page that reaches this many rates (default: whole range)", example = "5000")
+            @RequestParam(required = false) @Positive Integer limit,
+
+            @Parameter(description = "Output format: ndjson or json", example = "ndjson")
+            @RequestParam(defaultValue = "ndjson") @Pattern(regexp = "ndjson|json") String format
+    ) {
+        log.info("Received historical rates stream request for {}{} (start: {}, end: {}, cursor: {}, limit: {})",
+                from, to, startDate, endDate, cursor != null, limit);
+
+        // Validate before the response is committed, so bad input still gets a 400
+        HistoryQuery query = fxRateService.prepareHistoryQuery(from, to, startDate, endDate, cursor);
+        boolean ndjson = "ndjson".equals(format);
+
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            generator.setRootValueSeparator(null);
+            if (!ndjson) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("rates");
+            }
+
+            String nextCursor = fxRateService.streamHistoricalRates(query, pageSize, limit, page -> {
+                try {
+                    for (FxRate rate : page) {
+                        generator.writeObject(rate);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    }
+                    // Each page goes out as soon as it is read
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            if (ndjson) {
+                if (nextCursor != null) {
+                    generator.writeStartObject();
+                    generator.writeStringField("nextCursor", nextCursor);
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                }
+            } else {
+                generator.writeEndArray();
+                generator.writeStringField("nextCursor", nextCursor);
+                generator.writeEndObject();
+            }
+            generator.close();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.parseMediaType(NDJSON_VALUE) : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     @Operation(
             summary = "Get all supported currency pairs",
             description = "Returns a list of all currency pairs supported by the system"
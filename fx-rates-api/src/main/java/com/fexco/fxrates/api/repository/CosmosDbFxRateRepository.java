@@ -3,19 +3,38 @@ package com.fexco.fxrates.api.repository;
 import com.azure.cosmos.CosmosClient;
 import com.azure.cosmos.CosmosContainer;
 import com.azure.cosmos.CosmosDatabase;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosItemIdentity;
 import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.FeedResponse;
+import com.azure.cosmos.models.PartitionKey;
 import com.azure.cosmos.models.SqlParameter;
 import com.azure.cosmos.models.SqlQuerySpec;
 import com.azure.cosmos.util.CosmosPagedIterable;
+import com.fexco.fxrates.common.constant.CosmosConstants;
+import com.fexco.fxrates.common.model.CandleInterval;
 import com.fexco.fxrates.common.model.FxRate;
+import com.fexco.fxrates.common.model.FxRateCandle;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -25,61 +44,170 @@ import java.util.stream.Collectors;
 @Slf4j
 public class CosmosDbFxRateRepository implements FxRateRepository {
 
+    // Timestamps and bucket starts are stored with fixed millisecond precision, so they compare as
+    // strings only against parameters in the same format (Instant.toString() drops zero millis)
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
     private final CosmosContainer container;
+    private final CosmosContainer rollupContainer;
+
+    // Bounded pool for concurrent fallback queries on the batch path
+    private final ExecutorService batchReadExecutor;
 
     public CosmosDbFxRateRepository(
             CosmosClient cosmosClient,
             @Value("${azure.cosmos.database}") String databaseName,
-            @Value("${azure.cosmos.container}") String containerName
+            @Value("${azure.cosmos.container}") String containerName,
+            @Value("${azure.cosmos.rollup-container:rollups}") String rollupContainerName,
+            @Value("${azure.cosmos.batch-read-concurrency:16}") int batchReadConcurrency
     ) {
         CosmosDatabase database = cosmosClient.getDatabase(databaseName);
         this.container = database.getContainer(containerName);
-        log.info("Initialized Cosmos DB repository for database: {}, container: {}", databaseName, containerName);
+        this.rollupContainer = database.getContainer(rollupContainerName);
+        this.batchReadExecutor = Executors.newFixedThreadPool(batchReadConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "cosmos-batch-read");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Initialized Cosmos DB repository for database: {}, container: {}, rollup container: {}",
+                databaseName, containerName, rollupContainerName);
     }
 
     @Override
     public Optional<FxRate> findLatestByCurrencyPair(String currencyPair) {
         log.debug("Finding latest rate for currency pair: {}", currencyPair);
 
-        String query = "SELECT TOP 1 * FROM c WHERE c.currencyPair = @currencyPair ORDER BY c.timestamp DESC";
+        // Point read of the materialized latest document maintained at ingest time
+        try {
+            FxRate rate = container.readItem(
+                    FxRate.latestDocumentId(currencyPair),
+                    new PartitionKey(currencyPair),
+                    FxRate.class
+            ).getItem();
+            return Optional.ofNullable(rate);
+        } catch (CosmosException e) {
+            if (e.getStatusCode() != 404) {
+                throw e;
+            }
+        }
 
-        SqlQuerySpec querySpec = new SqlQuerySpec(query)
-                .setParameters(List.of(new SqlParameter("@currencyPair", currencyPair)));
+        // Pairs ingested before latest documents existed
+        log.debug("No latest document for {}. Falling back to query", currencyPair);
+        return queryLatestByCurrencyPair(currencyPair);
+    }
+
+    @Override
+    public Map<String, FxRate> findLatestByCurrencyPairs(Collection<String> currencyPairs) {
+        log.debug("Finding latest rates for {} currency pairs", currencyPairs.size());
+
+        // Read all latest documents with a single readMany call
+        List<CosmosItemIdentity> identities = currencyPairs.stream()
+                .map(pair -> new CosmosItemIdentity(new PartitionKey(pair), FxRate.latestDocumentId(pair)))
+                .collect(Collectors.toList());
+
+        Map<String, FxRate> rates = new HashMap<>();
+        container.readMany(identities, FxRate.class).getResults()
+                .forEach(rate -> rates.put(rate.getCurrencyPair(), rate));
+
+        List<String> missingPairs = new ArrayList<>(currencyPairs);
+        missingPairs.removeAll(rates.keySet());
+        if (missingPairs.isEmpty()) {
+            return rates;
+        }
+
+        // Pairs without a latest document are queried concurrently
+        Map<String, CompletableFuture<Optional<FxRate>>> pendingReads = new LinkedHashMap<>();
+        for (String currencyPair : missingPairs) {
+            pendingReads.put(currencyPair, CompletableFuture.supplyAsync(
+                    () -> queryLatestByCurrencyPair(currencyPair), batchReadExecutor));
+        }
+
+        pendingReads.forEach((currencyPair, pendingRead) -> {
+            try {
+                pendingRead.join().ifPresent(rate -> rates.put(currencyPair, rate));
+            } catch (CompletionException e) {
+                log.error("Error finding latest rate for {}", currencyPair, e.getCause());
+            }
+        });
+
+        return rates;
+    }
+
+    @Override
+    public List<FxRate> findHistoricalRates(String currencyPair, Instant startDate, Instant endDate, Integer limit) {
+        log.debug("Finding historical rates for {} between {} and {}", currencyPair, startDate, endDate);
 
         CosmosPagedIterable<FxRate> items = container.queryItems(
-                querySpec,
+                historicalRatesQuery(currencyPair, startDate, endDate, limit),
                 new CosmosQueryRequestOptions(),
                 FxRate.class
         );
 
-        return items.stream().findFirst();
+        return items.stream().collect(Collectors.toList());
     }
 
     @Override
-    public List<FxRate> findHistoricalRates(String currencyPair, Instant startDate, Instant endDate, Integer limit) {
-        log.debug("Finding historical rates for {} between {} and {}", currencyPair, startDate, endDate);
+    public String streamHistoricalRates(String currencyPair, Instant startDate, Instant endDate, String continuationToken,
+                                        int pageSize, Integer maxRates, Consumer<List<FxRate>> pageConsumer) {
+        log.debug("Streaming historical rates for {} between {} and {} (page size: {})",
+                currencyPair, startDate, endDate, pageSize);
+
+        // Single-partition query, so continuation tokens stay valid for ORDER BY
+        CosmosQueryRequestOptions options = new CosmosQueryRequestOptions()
+                .setPartitionKey(new PartitionKey(currencyPair));
+
+        Iterable<FeedResponse<FxRate>> pages = container.queryItems(
+                historicalRatesQuery(currencyPair, startDate, endDate, null),
+                options,
+                FxRate.class
+        ).iterableByPage(continuationToken, pageSize);
+
+        // Pages are fetched lazily; only the current page is held in memory
+        int streamed = 0;
+        for (FeedResponse<FxRate> page : pages) {
+            List<FxRate> rates = page.getResults();
+            if (!rates.isEmpty()) {
+                pageConsumer.accept(rates);
+                streamed += rates.size();
+            }
 
-        String query = "SELECT TOP @limit * FROM c " +
+            String nextToken = page.getContinuationToken();
+            if (nextToken == null) {
+                return null;
+            }
+            if (maxRates != null && streamed >= maxRates) {
+                return nextToken;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<FxRateCandle> findCandles(String currencyPair, CandleInterval interval, Instant startDate, Instant endDate) {
+        log.debug("Finding {} rollups for {} between {} and {}", interval.getCode(), currencyPair, startDate, endDate);
+
+        String query = "SELECT * FROM c " +
                 "WHERE c.currencyPair = @currencyPair " +
-                "AND c.timestamp >= @startDate " +
-                "AND c.timestamp <= @endDate " +
-                "ORDER BY c.timestamp DESC";
+                "AND c.interval = @interval " +
+                "AND c.bucketStart >= @startDate " +
+                "AND c.bucketStart <= @endDate " +
+                "ORDER BY c.bucketStart ASC";
 
         SqlQuerySpec querySpec = new SqlQuerySpec(query)
                 .setParameters(List.of(
                         new SqlParameter("@currencyPair", currencyPair),
-                        new SqlParameter("@startDate", startDate.toString()),
-                        new SqlParameter("@endDate", endDate.toString()),
-                        new SqlParameter("@limit", limit)
+                        new SqlParameter("@interval", interval.getCode()),
+                        new SqlParameter("@startDate", TIMESTAMP_FORMAT.format(startDate)),
+                        new SqlParameter("@endDate", TIMESTAMP_FORMAT.format(endDate))
                 ));
 
-        CosmosPagedIterable<FxRate> items = container.queryItems(
-                querySpec,
-                new CosmosQueryRequestOptions(),
-                FxRate.class
-        );
+        CosmosQueryRequestOptions options = new CosmosQueryRequestOptions()
+                .setPartitionKey(new PartitionKey(currencyPair));
 
-        return items.stream().collect(Collectors.toList());
+        return rollupContainer.queryItems(querySpec, options, FxRateCandle.class)
+                .stream()
+                .collect(Collectors.toList());
     }
 
     @Override
@@ -124,10 +252,15 @@ public class CosmosDbFxRateRepository implements FxRateRepository {
     public int deleteOlderThan(Instant timestamp) {
         log.info("Deleting rates older than {}", timestamp);
 
-        String query = "SELECT c.id, c.currencyPair FROM c WHERE c.timestamp < @timestamp";
+        // Latest documents are kept regardless of age
+        String query = "SELECT c.id, c.currencyPair FROM c " +
+                "WHERE c.timestamp < @timestamp AND NOT ENDSWITH(c.id, @latestSuffix)";
 
         SqlQuerySpec querySpec = new SqlQuerySpec(query)
-                .setParameters(List.of(new SqlParameter("@timestamp", timestamp.toString())));
+                .setParameters(List.of(
+                        new SqlParameter("@timestamp", TIMESTAMP_FORMAT.format(timestamp)),
+                        new SqlParameter("@latestSuffix", CosmosConstants.LATEST_DOCUMENT_ID_SUFFIX)
+                ));
 
         List<FxRate> ratesToDelete = container.queryItems(
                 querySpec,
@@ -149,14 +282,56 @@ public class CosmosDbFxRateRepository implements FxRateRepository {
         return deletedCount;
     }
 
+    /**
+     * Per-tick documents of a pair within a date range, newest first (TOP limit if given)
+     */
+    private SqlQuerySpec historicalRatesQuery(String currencyPair, Instant startDate, Instant endDate, Integer limit) {
+        String query = "SELECT " + (limit != null ? "TOP @limit " : "") + "* FROM c " +
+                "WHERE c.currencyPair = @currencyPair " +
+                "AND c.timestamp >= @startDate " +
+                "AND c.timestamp <= @endDate " +
+                "AND c.id != @latestId " +
+                "ORDER BY c.timestamp DESC";
+
+        List<SqlParameter> parameters = new ArrayList<>(List.of(
+                new SqlParameter("@currencyPair", currencyPair),
+                new SqlParameter("@latestId", FxRate.latestDocumentId(currencyPair)),
+                new SqlParameter("@startDate", TIMESTAMP_FORMAT.format(startDate)),
+                new SqlParameter("@endDate", TIMESTAMP_FORMAT.format(endDate))
+        ));
+        if (limit != null) {
+            parameters.add(new SqlParameter("@limit", limit));
+        }
+        return new SqlQuerySpec(query).setParameters(parameters);
+    }
+
+    /**
+     * Query the newest per-tick document for a currency pair
+     */
+    private Optional<FxRate> queryLatestByCurrencyPair(String currencyPair) {
+        String query = "SELECT TOP 1 * FROM c WHERE c.currencyPair = @currencyPair ORDER BY c.timestamp DESC";
+
+        SqlQuerySpec querySpec = new SqlQuerySpec(query)
+                .setParameters(List.of(new SqlParameter("@currencyPair", currencyPair)));
+
+        CosmosPagedIterable<FxRate> items = container.queryItems(
+                querySpec,
+                new CosmosQueryRequestOptions(),
+                FxRate.class
+        );
+
+        return items.stream().findFirst();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchReadExecutor.shutdown();
+    }
+
     /**
      * Generate a unique ID for an FX rate
      */
     private String generateId(FxRate fxRate) {
-        return String.format("%s_%s_%d",
-                fxRate.getCurrencyPair(),
-                fxRate.getSource(),
-                fxRate.getTimestamp().toEpochMilli()
-        );
+        return FxRate.tickDocumentId(fxRate.getCurrencyPair(), fxRate.getTimestamp().toEpochMilli());
     }
 }
@@ -1,10 +1,15 @@
 package com.fexco.fxrates.api.repository;
 
+import com.fexco.fxrates.common.model.CandleInterval;
 import com.fexco.fxrates.common.model.FxRate;
+import com.fexco.fxrates.common.model.FxRateCandle;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Repository interface for FX Rate persistence operations
@@ -19,6 +24,14 @@ public interface FxRateRepository {
      */
     Optional<FxRate> findLatestByCurrencyPair(String currencyPair);
 
+    /**
+     * Find the latest FX rates for several currency pairs in one call
+     *
+     * @param currencyPairs Currency pairs (e.g., ["EURUSD", "GBPUSD"])
+     * @return Map of currency pair to latest rate; pairs without a rate are absent
+     */
+    Map<String, FxRate> findLatestByCurrencyPairs(Collection<String> currencyPairs);
+
     /**
      * Find historical rates for a currency pair within a date range
      *
@@ -30,6 +43,32 @@ public interface FxRateRepository {
      */
     List<FxRate> findHistoricalRates(String currencyPair, Instant startDate, Instant endDate, Integer limit);
 
+    /**
+     * Stream historical rates for a currency pair page by page, newest first
+     *
+     * @param currencyPair      Currency pair
+     * @param startDate         Start date
+     * @param endDate           End date
+     * @param continuationToken Token to resume from, or null to start at the newest rate
+     * @param pageSize          Preferred number of rates per page
+     * @param maxRates          Stop after the page that reaches this many rates (null = whole range)
+     * @param pageConsumer      Receives each page as soon as it is read
+     * @return Continuation token for the rest of the range, or null if the range is exhausted
+     */
+    String streamHistoricalRates(String currencyPair, Instant startDate, Instant endDate, String continuationToken,
+                                 int pageSize, Integer maxRates, Consumer<List<FxRate>> pageConsumer);
+
+    /**
+     * Find the rollup candles written at ingest time for a currency pair, oldest first
+     *
+     * @param currencyPair Currency pair
+     * @param interval     Rollup interval (1m, 1h or 1d)
+     * @param startDate    Earliest bucket start (inclusive)
+     * @param endDate      Latest bucket start (inclusive)
+     * @return Closed rollup candles; buckets without ticks (or not yet closed) are absent
+     */
+    List<FxRateCandle> findCandles(String currencyPair, CandleInterval interval, Instant startDate, Instant endDate);
+
     /**
      * Save an FX rate
      *
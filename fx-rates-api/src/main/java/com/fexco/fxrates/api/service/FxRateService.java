@@ -4,8 +4,10 @@ import com.fexco.fxrates.common.dto.BatchFxRateRequest;
 import com.fexco.fxrates.common.dto.BatchFxRateResponse;
 import com.fexco.fxrates.common.dto.FxRateResponse;
 import com.fexco.fxrates.common.model.FxRate;
+import com.fexco.fxrates.common.model.FxRateCandle;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service interface for FX Rate operations
@@ -41,6 +43,41 @@ public interface FxRateService {
      */
     List<FxRate> getHistoricalRates(String from, String to, String startDate, String endDate, Integer limit);
 
+    /**
+     * Validate a streamed history request
+     *
+     * @param from      Source currency
+     * @param to        Target currency
+     * @param startDate Start date (ISO 8601), ignored when resuming from a cursor
+     * @param endDate   End date (ISO 8601), ignored when resuming from a cursor
+     * @param cursor    Cursor returned by a previous call, or null for a new query
+     * @return Query to stream
+     */
+    HistoryQuery prepareHistoryQuery(String from, String to, String startDate, String endDate, String cursor);
+
+    /**
+     * Stream historical FX rates page by page, newest first
+     *
+     * @param query        Query from {@link #prepareHistoryQuery}
+     * @param pageSize     Preferred number of rates per page (null = configured default)
+     * @param limit        Stop after the page that reaches this many rates (null = whole range)
+     * @param pageConsumer Receives each page as soon as it is read
+     * @return Cursor for the rest of the range, or null if the range is exhausted
+     */
+    String streamHistoricalRates(HistoryQuery query, Integer pageSize, Integer limit, Consumer<List<FxRate>> pageConsumer);
+
+    /**
+     * Get OHLC candles of the mid price, oldest bucket first
+     *
+     * @param from      Source currency
+     * @param to        Target currency
+     * @param interval  Bucket size code (1m, 5m, 1h, 1d)
+     * @param startDate Start date (ISO 8601)
+     * @param endDate   End date (ISO 8601)
+     * @return Candles for buckets with at least one tick
+     */
+    List<FxRateCandle> getCandles(String from, String to, String interval, String startDate, String endDate);
+
     /**
      * Get all supported currency pairs
      *
@@ -48,6 +85,13 @@ public interface FxRateService {
      */
     List<String> getSupportedCurrencyPairs();
 
+    /**
+     * Write freshly ingested rates to Redis and the near cache
+     *
+     * @param rates Rates received from the update stream
+     */
+    void refreshCache(List<FxRate> rates);
+
     /**
      * Invalidate cache for a currency pair
      *
@@ -1,24 +1,45 @@
 package com.fexco.fxrates.api.service;
 
+import com.fexco.fxrates.api.cache.FxRateHistoryCache;
+import com.fexco.fxrates.api.cache.FxRateNearCache;
 import com.fexco.fxrates.api.repository.FxRateRepository;
+import com.fexco.fxrates.api.store.TickStore;
 import com.fexco.fxrates.common.constant.CacheConstants;
 import com.fexco.fxrates.common.dto.BatchFxRateRequest;
 import com.fexco.fxrates.common.dto.BatchFxRateResponse;
 import com.fexco.fxrates.common.dto.FxRateResponse;
 import com.fexco.fxrates.common.exception.FxRateNotFoundException;
+import com.fexco.fxrates.common.exception.FxRateValidationException;
+import com.fexco.fxrates.common.model.CandleAccumulator;
+import com.fexco.fxrates.common.model.CandleInterval;
+import com.fexco.fxrates.common.model.FixedPointQuote;
 import com.fexco.fxrates.common.model.FxRate;
+import com.fexco.fxrates.common.model.FxRateCandle;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -29,12 +50,51 @@ import java.util.stream.Collectors;
 @Slf4j
 public class FxRateServiceImpl implements FxRateService {
 
+    private static final int REFRESH_THREADS = 4;
+    private static final int REFRESH_QUEUE_CAPACITY = 64;
+
     private final FxRateRepository fxRateRepository;
+    private final FxRateNearCache nearCache;
+    private final FxRateHistoryCache historyCache;
+    private final TickStore tickStore;
     private final RedisTemplate<String, FxRate> redisTemplate;
     private final RedisTemplate<String, String> stringRedisTemplate;
 
+    // In-flight loads per currency pair, so concurrent misses share a single Cosmos DB query
+    private final Map<String, CompletableFuture<FxRate>> inFlightLoads = new ConcurrentHashMap<>();
+
+    // Runs stale-while-revalidate refreshes; at most one per pair thanks to inFlightLoads.
+    // Bounded, so a Redis or Cosmos DB stall cannot pile up a thread per stale key: once the
+    // queue is full further refreshes are rejected and the stale rate keeps being served
+    private final ExecutorService refreshExecutor = new ThreadPoolExecutor(
+            REFRESH_THREADS, REFRESH_THREADS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(REFRESH_QUEUE_CAPACITY),
+            runnable -> {
+                Thread thread = new Thread(runnable, "fx-rate-refresh");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    @Value("${app.fx-rates.cache-updater.ttl-seconds:15}")
+    private int pushedTtlSeconds;
+
+    @Value("${app.fx-rates.history.page-size:500}")
+    private int historyPageSize;
+
+    @Value("${app.fx-rates.history.max-page-size:1000}")
+    private int historyMaxPageSize;
+
+    @Value("${app.fx-rates.history.max-candles:5000}")
+    private int maxCandles;
+
+    @Value("${app.fx-rates.history.rollups-enabled:true}")
+    private boolean rollupsEnabled;
+
+    @Value("${app.fx-rates.history.max-tick-ranges:20}")
+    private int maxTickRanges;
+
     @Override
-    @Cacheable(value = "fx-rates", key = "#from + #to", unless = "#result == null")
     @CircuitBreaker(name = "cosmosdb", fallbackMethod = "getFxRateFallback")
     @Retry(name = "cosmosdb")
     public FxRateResponse getFxRate(String from, String to) {
@@ -42,20 +102,31 @@ public class FxRateServiceImpl implements FxRateService {
 
         String currencyPair = from + to;
 
-        // Try Redis first
+        // Try the in-process near cache first
+        FxRate nearRate = nearCache.get(currencyPair);
+        if (nearRate != null) {
+            log.debug("Near cache hit for {}", currencyPair);
+            return FxRateResponse.success(nearRate, true);
+        }
+
+        // Serve an expired near cache entry while a single background refresh runs
+        FxRate staleRate = nearCache.getStale(currencyPair);
+        if (staleRate != null) {
+            log.debug("Serving stale rate for {} while revalidating", currencyPair);
+            refreshInBackground(currencyPair);
+            return FxRateResponse.success(staleRate, true);
+        }
+
+        // Then Redis
         FxRate cachedRate = getCachedRate(currencyPair);
         if (cachedRate != null) {
             log.debug("Cache hit for {}", currencyPair);
             return FxRateResponse.success(cachedRate, true);
         }
 
-        // Fallback to Cosmos DB
+        // Fallback to Cosmos DB, with concurrent misses for the same pair sharing one query
         log.debug("Cache miss for {}. Fetching from Cosmos DB", currencyPair);
-        FxRate rate = fxRateRepository.findLatestByCurrencyPair(currencyPair)
-                .orElseThrow(() -> new FxRateNotFoundException(currencyPair));
-
-        // Update cache
-        cacheRate(currencyPair, rate);
+        FxRate rate = loadCoalesced(currencyPair, () -> loadFromDatabase(currencyPair));
 
         return FxRateResponse.success(rate, false);
     }
@@ -66,37 +137,45 @@ public class FxRateServiceImpl implements FxRateService {
         log.debug("Fetching batch FX rates for {} pairs", request.getCurrencyPairs().size());
 
         Map<String, FxRate> ratesMap = new HashMap<>();
-        List<String> failedPairs = new ArrayList<>();
+        List<String> pendingPairs = new ArrayList<>();
+
+        // Serve what we can from the near cache
+        for (String pair : new LinkedHashSet<>(request.getCurrencyPairs())) {
+            FxRate nearRate = nearCache.get(pair);
+            if (nearRate != null) {
+                ratesMap.put(pair, nearRate);
+            } else {
+                pendingPairs.add(pair);
+            }
+        }
 
-        for (String pair : request.getCurrencyPairs()) {
-            try {
-                // Try cache first
-                FxRate cachedRate = getCachedRate(pair);
-                if (cachedRate != null) {
-                    ratesMap.put(pair, cachedRate);
-                    continue;
-                }
+        // Resolve the rest from Redis with a single MGET
+        if (!pendingPairs.isEmpty()) {
+            Map<String, FxRate> cachedRates = getCachedRates(pendingPairs);
+            ratesMap.putAll(cachedRates);
+            pendingPairs.removeAll(cachedRates.keySet());
+        }
 
-                // Fallback to database
-                Optional<FxRate> rate = fxRateRepository.findLatestByCurrencyPair(pair);
-                if (rate.isPresent()) {
-                    ratesMap.put(pair, rate.get());
-                    cacheRate(pair, rate.get());
-                } else {
-                    failedPairs.add(pair);
-                }
+        // Fetch all remaining misses from Cosmos DB in one call and write them back in one pipeline
+        if (!pendingPairs.isEmpty()) {
+            try {
+                Map<String, FxRate> loadedRates = fxRateRepository.findLatestByCurrencyPairs(pendingPairs);
+                cacheRates(loadedRates, CacheConstants.FX_RATE_TTL_SECONDS);
+                loadedRates.forEach(nearCache::put);
+                ratesMap.putAll(loadedRates);
+                pendingPairs.removeAll(loadedRates.keySet());
             } catch (Exception e) {
-                log.error("Error fetching rate for pair: {}", pair, e);
-                failedPairs.add(pair);
+                log.error("Error fetching rates for pairs: {}", pendingPairs, e);
             }
         }
 
+        // Anything still pending could not be resolved
         return BatchFxRateResponse.builder()
                 .rates(ratesMap)
-                .failedPairs(failedPairs)
+                .failedPairs(pendingPairs)
                 .totalRequested(request.getCurrencyPairs().size())
                 .totalSuccessful(ratesMap.size())
-                .totalFailed(failedPairs.size())
+                .totalFailed(pendingPairs.size())
                 .retrievedAt(Instant.now())
                 .build();
     }
@@ -108,10 +187,261 @@ public class FxRateServiceImpl implements FxRateService {
 
         String currencyPair = from + to;
 
-        Instant start = startDate != null ? Instant.parse(startDate) : Instant.now().minusSeconds(86400);
-        Instant end = endDate != null ? Instant.parse(endDate) : Instant.now();
+        // The default window starts on a bucket boundary, so repeated loads share cached buckets
+        Instant now = Instant.now();
+        Instant start = startDate != null
+                ? Instant.parse(startDate)
+                : Instant.ofEpochMilli(historyCache.bucketStartMillis(now.minusSeconds(86400).toEpochMilli()));
+        Instant end = endDate != null ? Instant.parse(endDate) : now;
+
+        // Serve the part of the range held by the local tick store without querying Cosmos DB
+        Instant coveredSince = tickStore.coveredSince(currencyPair);
+        if (coveredSince == null || coveredSince.isAfter(end)) {
+            return loadHistoricalRates(currencyPair, start, end, limit);
+        }
+
+        Instant localStart = start.isAfter(coveredSince) ? start : coveredSince;
+        List<FxRate> rates = tickStore.findHistoricalRates(currencyPair, localStart, end, limit);
+        if (!start.isBefore(coveredSince) || (limit != null && rates.size() >= limit)) {
+            return rates;
+        }
+
+        // Older part of the range (newest first, so it follows the local ticks)
+        rates.addAll(loadHistoricalRates(currencyPair, start, coveredSince.minusMillis(1),
+                limit != null ? limit - rates.size() : null));
+        return rates;
+    }
+
+    /**
+     * Rates of a range from Cosmos DB, newest first, reading closed buckets through the history cache
+     *
+     * Only the open head of the range is queried live; each closed bucket overlapping the range
+     * is read whole from the cache (or loaded once and cached) and trimmed to the range.
+     */
+    private List<FxRate> loadHistoricalRates(String currencyPair, Instant start, Instant end, Integer limit) {
+        long startMillis = start.toEpochMilli();
+        long endMillis = end.toEpochMilli();
+        if (!historyCache.isEnabled() || startMillis > endMillis) {
+            return fxRateRepository.findHistoricalRates(currencyPair, start, end, limit);
+        }
+
+        List<FxRate> rates = new ArrayList<>();
+        long openFrom = historyCache.openBucketsStartMillis(System.currentTimeMillis());
+        if (endMillis >= openFrom) {
+            rates.addAll(fxRateRepository.findHistoricalRates(currencyPair,
+                    Instant.ofEpochMilli(Math.max(startMillis, openFrom)), end, limit));
+            if (startMillis >= openFrom || (limit != null && rates.size() >= limit)) {
+                return rates;
+            }
+        }
+
+        long closedEnd = Math.min(endMillis, openFrom - 1);
+        long bucketMillis = historyCache.getBucketMillis();
+        long firstBucket = historyCache.bucketStartMillis(startMillis);
+        long lastBucket = historyCache.bucketStartMillis(closedEnd);
+        Integer remaining = limit != null ? limit - rates.size() : null;
+
+        if ((lastBucket - firstBucket) / bucketMillis + 1 > historyCache.getMaxBuckets()) {
+            log.debug("History range for {} spans too many buckets, bypassing the cache", currencyPair);
+            rates.addAll(fxRateRepository.findHistoricalRates(currencyPair, start,
+                    Instant.ofEpochMilli(closedEnd), remaining));
+            return rates;
+        }
+
+        // Newest bucket first, matching the order of the rates
+        List<Long> bucketStarts = new ArrayList<>();
+        for (long bucketStart = lastBucket; bucketStart >= firstBucket; bucketStart -= bucketMillis) {
+            bucketStarts.add(bucketStart);
+        }
+        List<List<FxRate>> cachedBuckets = historyCache.getBuckets(currencyPair, bucketStarts);
+
+        for (int i = 0; i < bucketStarts.size() && (limit == null || rates.size() < limit); i++) {
+            long bucketStart = bucketStarts.get(i);
+            List<FxRate> bucket = cachedBuckets.get(i);
+            if (bucket == null) {
+                bucket = fxRateRepository.findHistoricalRates(currencyPair, Instant.ofEpochMilli(bucketStart),
+                        Instant.ofEpochMilli(bucketStart + bucketMillis - 1), null);
+                historyCache.putBucket(currencyPair, bucketStart, bucket);
+            }
+
+            for (FxRate rate : bucket) {
+                if (limit != null && rates.size() >= limit) {
+                    return rates;
+                }
+                long timestamp = rate.getTimestamp() != null ? rate.getTimestamp().toEpochMilli() : Long.MIN_VALUE;
+                if (timestamp >= startMillis && timestamp <= closedEnd) {
+                    rates.add(rate);
+                }
+            }
+        }
+        return rates;
+    }
+
+    @Override
+    public HistoryQuery prepareHistoryQuery(String from, String to, String startDate, String endDate, String cursor) {
+        String currencyPair = from + to;
+        if (cursor != null && !cursor.isEmpty()) {
+            return HistoryQuery.fromCursor(cursor, currencyPair);
+        }
+
+        try {
+            Instant start = startDate != null ? Instant.parse(startDate) : Instant.now().minusSeconds(86400);
+            Instant end = endDate != null ? Instant.parse(endDate) : Instant.now();
+            if (start.isAfter(end)) {
+                throw new FxRateValidationException("startDate must not be after endDate");
+            }
+            return new HistoryQuery(currencyPair, start, end, null);
+        } catch (DateTimeParseException e) {
+            throw new FxRateValidationException("Dates must be ISO 8601 instants", e);
+        }
+    }
+
+    @Override
+    public String streamHistoricalRates(HistoryQuery query, Integer pageSize, Integer limit,
+                                        Consumer<List<FxRate>> pageConsumer) {
+        int effectivePageSize = pageSize != null
+                ? Math.min(Math.max(pageSize, 1), historyMaxPageSize)
+                : historyPageSize;
+
+        String nextToken = fxRateRepository.streamHistoricalRates(
+                query.currencyPair(), query.startDate(), query.endDate(), query.continuationToken(),
+                effectivePageSize, limit, pageConsumer
+        );
+        return nextToken != null ? query.resumeAt(nextToken).toCursor() : null;
+    }
+
+    @Override
+    @CircuitBreaker(name = "cosmosdb")
+    public List<FxRateCandle> getCandles(String from, String to, String interval, String startDate, String endDate) {
+        HistoryQuery query = prepareHistoryQuery(from, to, startDate, endDate, null);
+        CandleInterval candleInterval = parseInterval(interval);
+
+        long bucketCount = Duration.between(query.startDate(), query.endDate()).toMillis() / candleInterval.getMillis() + 1;
+        if (bucketCount > maxCandles) {
+            throw new FxRateValidationException(String.format(
+                    "Range too wide for %s candles: at most %d buckets", candleInterval.getCode(), maxCandles));
+        }
+
+        log.debug("Aggregating {} candles for {} between {} and {}",
+                candleInterval.getCode(), query.currencyPair(), query.startDate(), query.endDate());
+
+        Map<Long, CandleAccumulator> buckets = new TreeMap<>();
+        long startMillis = query.startDate().toEpochMilli();
+        long endMillis = query.endDate().toEpochMilli();
+
+        CandleInterval rollupInterval = rollupIntervalFor(candleInterval);
+        long firstRollup = rollupInterval.bucketStartMillis(startMillis + rollupInterval.getMillis() - 1);
+        long lastRollup = rollupInterval.bucketStartMillis(endMillis + 1) - rollupInterval.getMillis();
+
+        List<FxRateCandle> rollups = rollupsEnabled && firstRollup <= lastRollup
+                ? findRollups(query.currencyPair(), rollupInterval, firstRollup, lastRollup)
+                : List.of();
+
+        Set<Long> rolledUp = new HashSet<>();
+        rollups.forEach(rollup -> rolledUp.add(rollup.getBucketStart().toEpochMilli()));
+        List<long[]> tickRanges = tickRanges(startMillis, endMillis + 1, rollupInterval, rolledUp);
+
+        if (tickRanges.size() > maxTickRanges) {
+            // Too fragmented to be worth it: one pass over all ticks instead
+            rollups = List.of();
+            tickRanges = List.<long[]>of(new long[]{startMillis, endMillis + 1});
+        }
+
+        for (FxRateCandle rollup : rollups) {
+            CandleAccumulator accumulator = CandleAccumulator.fromCandle(rollup, candleInterval);
+            buckets.merge(accumulator.getBucketStartMillis(), accumulator, (existing, added) -> {
+                existing.merge(added);
+                return existing;
+            });
+        }
+        for (long[] range : tickRanges) {
+            aggregateTicks(buckets, query.currencyPair(), candleInterval,
+                    Instant.ofEpochMilli(range[0]), Instant.ofEpochMilli(range[1] - 1));
+        }
+        log.debug("Used {} {} rollups and {} tick ranges for {}", rollups.size(), rollupInterval.getCode(),
+                tickRanges.size(), query.currencyPair());
+
+        return buckets.values().stream()
+                .map(CandleAccumulator::toCandle)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Stored rollups of a pair with bucket starts in [firstBucket, lastBucket] (empty if unavailable)
+     */
+    private List<FxRateCandle> findRollups(String currencyPair, CandleInterval rollupInterval,
+                                           long firstBucket, long lastBucket) {
+        try {
+            return fxRateRepository.findCandles(currencyPair, rollupInterval,
+                    Instant.ofEpochMilli(firstBucket), Instant.ofEpochMilli(lastBucket));
+        } catch (Exception e) {
+            log.warn("Error reading rollups for {}, aggregating ticks instead: {}", currencyPair, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Parts of [startMillis, endMillis) not covered by stored rollups, which must be aggregated from ticks
+     *
+     * Covers the edges that are not whole rollup buckets and every run of missing rollups in between;
+     * adjacent parts are joined.
+     *
+     * @return [start, end) pairs in epoch millis, oldest first
+     */
+    static List<long[]> tickRanges(long startMillis, long endMillis, CandleInterval rollupInterval,
+                                   Set<Long> rolledUp) {
+        List<long[]> ranges = new ArrayList<>();
+        long bucketMillis = rollupInterval.getMillis();
+        long firstBucket = rollupInterval.bucketStartMillis(startMillis + bucketMillis - 1);
+
+        long missingFrom = startMillis;
+        for (long bucket = firstBucket; bucket + bucketMillis <= endMillis; bucket += bucketMillis) {
+            if (rolledUp.contains(bucket)) {
+                if (missingFrom < bucket) {
+                    ranges.add(new long[]{missingFrom, bucket});
+                }
+                missingFrom = bucket + bucketMillis;
+            }
+        }
+        if (missingFrom < endMillis) {
+            ranges.add(new long[]{missingFrom, endMillis});
+        }
+        return ranges;
+    }
 
-        return fxRateRepository.findHistoricalRates(currencyPair, start, end, limit);
+    /**
+     * Stored rollup interval that candles of an interval are built from (5m candles from 1m rollups)
+     */
+    private static CandleInterval rollupIntervalFor(CandleInterval candleInterval) {
+        return candleInterval == CandleInterval.FIVE_MINUTES ? CandleInterval.ONE_MINUTE : candleInterval;
+    }
+
+    /**
+     * Add the ticks of a range to the buckets in a single streaming pass
+     */
+    private void aggregateTicks(Map<Long, CandleAccumulator> buckets, String currencyPair,
+                                CandleInterval candleInterval, Instant startDate, Instant endDate) {
+        fxRateRepository.streamHistoricalRates(
+                currencyPair, startDate, endDate, null, historyMaxPageSize, null,
+                page -> page.forEach(rate -> {
+                    if (rate.getTimestamp() == null) {
+                        return;
+                    }
+                    long bucketStart = candleInterval.bucketStartMillis(rate.getTimestamp().toEpochMilli());
+                    buckets.computeIfAbsent(bucketStart,
+                                    start -> new CandleAccumulator(currencyPair, candleInterval, start))
+                            .add(FixedPointQuote.from(rate));
+                })
+        );
+    }
+
+    private static CandleInterval parseInterval(String interval) {
+        try {
+            return CandleInterval.fromCode(interval);
+        } catch (IllegalArgumentException e) {
+            throw new FxRateValidationException("Interval must be one of 1m, 5m, 1h, 1d", e);
+        }
     }
 
     @Override
@@ -139,23 +469,186 @@ public class FxRateServiceImpl implements FxRateService {
     }
 
     @Override
-    @CacheEvict(value = "fx-rates", key = "#currencyPair")
+    public void refreshCache(List<FxRate> rates) {
+        // Keep the newest rate per pair in case the batch spans several ticks
+        Map<String, FxRate> latestRates = new HashMap<>();
+        for (FxRate rate : rates) {
+            if (rate != null && rate.getCurrencyPair() != null) {
+                latestRates.merge(rate.getCurrencyPair(), rate, (existing, candidate) ->
+                        existing.getTimestamp() != null && candidate.getTimestamp() != null
+                                && candidate.getTimestamp().isBefore(existing.getTimestamp()) ? existing : candidate);
+            }
+        }
+
+        cacheRates(latestRates, pushedTtlSeconds);
+        latestRates.forEach((currencyPair, rate) -> nearCache.put(currencyPair, rate, pushedTtlSeconds));
+    }
+
+    @Override
     public void invalidateCache(String currencyPair) {
         log.info("Invalidating cache for {}", currencyPair);
+        nearCache.invalidate(currencyPair);
         String cacheKey = CacheConstants.FX_RATE_CACHE_PREFIX + currencyPair;
         redisTemplate.delete(cacheKey);
     }
 
     /**
-     * Helper method to get cached rate from Redis
+     * Load a rate so that concurrent callers for the same pair share one load
+     *
+     * The first caller runs the loader; the others wait on its future and see
+     * the same rate or the same exception.
+     */
+    private FxRate loadCoalesced(String currencyPair, Supplier<FxRate> loader) {
+        CompletableFuture<FxRate> load = new CompletableFuture<>();
+        CompletableFuture<FxRate> inFlight = inFlightLoads.putIfAbsent(currencyPair, load);
+
+        if (inFlight == null) {
+            runLoad(currencyPair, load, loader);
+            inFlight = load;
+        } else {
+            log.debug("Joining in-flight load for {}", currencyPair);
+        }
+
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Refresh a rate in the background unless a load for the pair is already running
+     */
+    private void refreshInBackground(String currencyPair) {
+        CompletableFuture<FxRate> load = new CompletableFuture<>();
+        if (inFlightLoads.putIfAbsent(currencyPair, load) != null) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> runLoad(currencyPair, load, () -> loadFromStore(currencyPair)));
+        } catch (RuntimeException e) {
+            // Fail any request that joined this load; a later request for the pair retries
+            inFlightLoads.remove(currencyPair, load);
+            load.completeExceptionally(e);
+            if (e instanceof RejectedExecutionException) {
+                log.debug("Refresh queue full, skipping refresh for {}", currencyPair);
+            } else {
+                log.warn("Could not schedule refresh for {}: {}", currencyPair, e.getMessage());
+            }
+            return;
+        }
+        load.exceptionally(ex -> {
+            log.warn("Background refresh failed for {}: {}", currencyPair, ex.getMessage());
+            return null;
+        });
+    }
+
+    private void runLoad(String currencyPair, CompletableFuture<FxRate> load, Supplier<FxRate> loader) {
+        try {
+            load.complete(loader.get());
+        } catch (Throwable e) {
+            load.completeExceptionally(e);
+        } finally {
+            inFlightLoads.remove(currencyPair, load);
+        }
+    }
+
+    /**
+     * Load a rate from Redis, falling back to Cosmos DB
+     */
+    private FxRate loadFromStore(String currencyPair) {
+        FxRate cachedRate = getCachedRate(currencyPair);
+        return cachedRate != null ? cachedRate : loadFromDatabase(currencyPair);
+    }
+
+    /**
+     * Load a rate from Cosmos DB and write it back to both caches
+     */
+    private FxRate loadFromDatabase(String currencyPair) {
+        FxRate rate = fxRateRepository.findLatestByCurrencyPair(currencyPair)
+                .orElseThrow(() -> new FxRateNotFoundException(currencyPair));
+
+        cacheRate(currencyPair, rate);
+        nearCache.put(currencyPair, rate);
+        return rate;
+    }
+
+    /**
+     * Helper method to get cached rate from Redis, copying it into the near cache until the
+     * Redis entry expires (value and remaining TTL are read in one pipelined round trip)
      */
     private FxRate getCachedRate(String currencyPair) {
+        return getCachedRates(List.of(currencyPair)).get(currencyPair);
+    }
+
+    /**
+     * Helper method to get several cached rates from Redis with a single pipelined MGET,
+     * copying them into the near cache until their Redis entries expire
+     */
+    private Map<String, FxRate> getCachedRates(List<String> currencyPairs) {
+        Map<String, FxRate> cachedRates = new HashMap<>();
         try {
-            String cacheKey = CacheConstants.FX_RATE_CACHE_PREFIX + currencyPair;
-            return redisTemplate.opsForValue().get(cacheKey);
+            List<String> cacheKeys = currencyPairs.stream()
+                    .map(pair -> CacheConstants.FX_RATE_CACHE_PREFIX + pair)
+                    .collect(Collectors.toList());
+
+            // Results: the MGET values, then the remaining TTL (ms) of each key
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, FxRate> ops = (RedisOperations<String, FxRate>) operations;
+                    ops.opsForValue().multiGet(cacheKeys);
+                    cacheKeys.forEach(cacheKey -> ops.getExpire(cacheKey, TimeUnit.MILLISECONDS));
+                    return null;
+                }
+            });
+            if (results.isEmpty() || !(results.get(0) instanceof List<?> values)) {
+                return cachedRates;
+            }
+
+            for (int i = 0; i < currencyPairs.size(); i++) {
+                if (values.get(i) instanceof FxRate rate) {
+                    Long ttlMillis = results.get(i + 1) instanceof Long ttl ? ttl : null;
+                    cachedRates.put(currencyPairs.get(i), rate);
+                    nearCache.putFromRedis(currencyPairs.get(i), rate, ttlMillis);
+                }
+            }
         } catch (Exception e) {
-            log.warn("Error reading from cache for {}: {}", currencyPair, e.getMessage());
-            return null;
+            log.warn("Error reading {} pairs from cache: {}", currencyPairs.size(), e.getMessage());
+        }
+        return cachedRates;
+    }
+
+    /**
+     * Helper method to cache several rates in Redis with a single pipelined round trip
+     */
+    private void cacheRates(Map<String, FxRate> rates, int ttlSeconds) {
+        if (rates.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, FxRate> ops = (RedisOperations<String, FxRate>) operations;
+                    rates.forEach((currencyPair, rate) -> ops.opsForValue().set(
+                            CacheConstants.FX_RATE_CACHE_PREFIX + currencyPair,
+                            rate,
+                            ttlSeconds,
+                            TimeUnit.SECONDS
+                    ));
+                    return null;
+                }
+            });
+            log.debug("Cached {} rates with TTL {}s", rates.size(), ttlSeconds);
+        } catch (Exception e) {
+            log.warn("Error writing {} rates to cache: {}", rates.size(), e.getMessage());
         }
     }
 
@@ -197,6 +690,11 @@ public class FxRateServiceImpl implements FxRateService {
         throw new FxRateNotFoundException(currencyPair);
     }
 
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
     /**
      * Fallback method for batch requests
      */
@@ -0,0 +1,57 @@
+package com.fexco.fxrates.api.service;
+
+import com.fexco.fxrates.common.exception.FxRateValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * A validated historical rates query and the position to resume it from
+ *
+ * Encoded as an opaque, URL-safe cursor, so a client resumes with the cursor alone.
+ *
+ * @param currencyPair      Currency pair (e.g., "EURUSD")
+ * @param startDate         Start of the range (inclusive)
+ * @param endDate           End of the range (inclusive)
+ * @param continuationToken Cosmos DB continuation token, or null to start at the newest rate
+ */
+public record HistoryQuery(String currencyPair, Instant startDate, Instant endDate, String continuationToken) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * The same query resumed at a continuation token
+     */
+    public HistoryQuery resumeAt(String continuationToken) {
+        return new HistoryQuery(currencyPair, startDate, endDate, continuationToken);
+    }
+
+    /**
+     * Opaque cursor for this query
+     */
+    public String toCursor() {
+        // The continuation token goes last: it is free-form and may contain the separator
+        String value = currencyPair + SEPARATOR + startDate + SEPARATOR + endDate + SEPARATOR + continuationToken;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor issued for a currency pair
+     *
+     * @throws FxRateValidationException if the cursor is malformed or was issued for another pair
+     */
+    public static HistoryQuery fromCursor(String cursor, String currencyPair) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = value.split("\\" + SEPARATOR, 4);
+            if (parts.length != 4 || !parts[0].equals(currencyPair)) {
+                throw new FxRateValidationException("Invalid cursor for " + currencyPair);
+            }
+            return new HistoryQuery(parts[0], Instant.parse(parts[1]), Instant.parse(parts[2]), parts[3]);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new FxRateValidationException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.fexco.fxrates.api.store;
+
+import com.fexco.fxrates.common.model.FixedPointQuote;
+import com.fexco.fxrates.common.model.FxRate;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One append-only, memory-mapped segment file of a currency pair's ticks
+ *
+ * Layout: a 16-byte header (magic, scale, record count) followed by fixed-width 64-byte
+ * records: timestamp millis; rate, bid, ask as fixed-point mantissas at the pair's scale;
+ * createdAt and updatedAt millis (0 if unset); confidence score (double bits, NaN if unset);
+ * source as an index into the pair's source list (-1 if unset). Rows read back get the tick
+ * document id (pair and timestamp), but prices come back at the pair's scale, so they can differ
+ * from the stored documents in digits beyond it.
+ * Records are appended in timestamp order, so range scans binary search the mapped file
+ * directly. One writer appends; readers only see records published through the volatile count.
+ */
+final class TickSegment {
+
+    private static final int MAGIC = 0x46585432; // "FXT2"
+    private static final int HEADER_BYTES = 16;
+    private static final int COUNT_OFFSET = 8;
+    private static final int RECORD_BYTES = 64;
+    private static final int NO_SOURCE = -1;
+
+    private final Path path;
+    private final String currencyPair;
+    private final int scale;
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+
+    private volatile int count;
+
+    private TickSegment(Path path, String currencyPair, int scale, int capacity, MappedByteBuffer buffer, int count) {
+        this.path = path;
+        this.currencyPair = currencyPair;
+        this.scale = scale;
+        this.capacity = capacity;
+        this.buffer = buffer;
+        this.count = count;
+    }
+
+    /**
+     * Create a new, empty segment file
+     */
+    static TickSegment create(Path path, String currencyPair, int scale, int capacity) throws IOException {
+        MappedByteBuffer buffer = map(path, capacity, StandardOpenOption.CREATE_NEW);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, scale);
+        buffer.putLong(COUNT_OFFSET, 0L);
+        return new TickSegment(path, currencyPair, scale, capacity, buffer, 0);
+    }
+
+    /**
+     * Map an existing segment file
+     *
+     * @throws IOException if the file is not a segment of this pair's scale
+     */
+    static TickSegment open(Path path, String currencyPair, int scale) throws IOException {
+        int capacity = (int) ((Files.size(path) - HEADER_BYTES) / RECORD_BYTES);
+        MappedByteBuffer buffer = map(path, capacity);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != scale) {
+            throw new IOException("Not a tick segment for " + currencyPair + ": " + path);
+        }
+        int count = (int) Math.min(buffer.getLong(COUNT_OFFSET), capacity);
+        return new TickSegment(path, currencyPair, scale, capacity, buffer, count);
+    }
+
+    private static MappedByteBuffer map(Path path, int capacity, StandardOpenOption... extraOptions) throws IOException {
+        StandardOpenOption[] options = new StandardOpenOption[extraOptions.length + 2];
+        options[0] = StandardOpenOption.READ;
+        options[1] = StandardOpenOption.WRITE;
+        System.arraycopy(extraOptions, 0, options, 2, extraOptions.length);
+
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) capacity * RECORD_BYTES);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    long firstTimestamp() {
+        return timestampAt(0);
+    }
+
+    long lastTimestamp() {
+        return timestampAt(count - 1);
+    }
+
+    /**
+     * Append a tick; the caller ensures the segment is not full and timestamps do not decrease
+     *
+     * @param sourceIndex Index of the rate's source in the pair's source list, or -1
+     */
+    void append(FxRate rate, int sourceIndex) {
+        FixedPointQuote quote = FixedPointQuote.from(rate);
+        int index = count;
+        int offset = HEADER_BYTES + index * RECORD_BYTES;
+        buffer.putLong(offset, quote.getTimestampMillis());
+        buffer.putLong(offset + 8, quote.getRate());
+        buffer.putLong(offset + 16, quote.getBid());
+        buffer.putLong(offset + 24, quote.getAsk());
+        buffer.putLong(offset + 32, rate.getCreatedAt() != null ? rate.getCreatedAt().toEpochMilli() : 0L);
+        buffer.putLong(offset + 40, rate.getUpdatedAt() != null ? rate.getUpdatedAt().toEpochMilli() : 0L);
+        buffer.putDouble(offset + 48, rate.getConfidenceScore() != null ? rate.getConfidenceScore() : Double.NaN);
+        buffer.putInt(offset + 56, sourceIndex);
+        buffer.putLong(COUNT_OFFSET, index + 1L);
+        // Publish the record to readers
+        count = index + 1;
+    }
+
+    /**
+     * Add the ticks within [startMillis, endMillis] to a list, newest first
+     *
+     * @param limit   Maximum number of ticks in the list (including ticks already in it)
+     * @param sources The pair's source list
+     */
+    void collectDescending(long startMillis, long endMillis, int limit, List<FxRate> rates, List<String> sources) {
+        int visible = count;
+        // Index of the last record with timestamp <= endMillis
+        int index = upperBound(endMillis, visible) - 1;
+        for (; index >= 0 && rates.size() < limit; index--) {
+            int offset = HEADER_BYTES + index * RECORD_BYTES;
+            long timestamp = buffer.getLong(offset);
+            if (timestamp < startMillis) {
+                return;
+            }
+            rates.add(readRate(offset, timestamp, sources));
+        }
+    }
+
+    private FxRate readRate(int offset, long timestamp, List<String> sources) {
+        FxRate rate = new FixedPointQuote(currencyPair, scale,
+                buffer.getLong(offset + 8),
+                buffer.getLong(offset + 16),
+                buffer.getLong(offset + 24),
+                timestamp).toFxRate();
+
+        long createdAt = buffer.getLong(offset + 32);
+        long updatedAt = buffer.getLong(offset + 40);
+        double confidenceScore = buffer.getDouble(offset + 48);
+        int sourceIndex = buffer.getInt(offset + 56);
+
+        rate.setCreatedAt(createdAt != 0 ? Instant.ofEpochMilli(createdAt) : null);
+        rate.setUpdatedAt(updatedAt != 0 ? Instant.ofEpochMilli(updatedAt) : null);
+        rate.setConfidenceScore(Double.isNaN(confidenceScore) ? null : confidenceScore);
+        if (sourceIndex != NO_SOURCE && sourceIndex < sources.size()) {
+            rate.setSource(sources.get(sourceIndex));
+        }
+        rate.setId(FxRate.tickDocumentId(currencyPair, timestamp));
+        return rate;
+    }
+
+    /**
+     * Number of records (among the first {@code visible}) with timestamp <= millis
+     */
+    private int upperBound(long millis, int visible) {
+        int low = 0;
+        int high = visible;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestampAt(middle) <= millis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long timestampAt(int index) {
+        return buffer.getLong(HEADER_BYTES + index * RECORD_BYTES);
+    }
+}
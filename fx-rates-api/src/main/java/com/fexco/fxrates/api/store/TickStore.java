@@ -0,0 +1,384 @@
+package com.fexco.fxrates.api.store;
+
+import com.fexco.fxrates.common.model.FixedPoint;
+import com.fexco.fxrates.common.model.FxRate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Optional local store of recent ticks, fed by the rate update stream
+ *
+ * Each pair has append-only {@link TickSegment} files ({directory}/{PAIR}/{yyyyMMdd}-{n}.ticks,
+ * rolled daily or when full) that are memory-mapped, so history queries over the retention
+ * window are binary searches over local memory instead of Cosmos DB queries.
+ *
+ * Updates for a pair can arrive out of order (they are published without a partition key,
+ * by several ingestion replicas), so each pair holds its newest ticks in a small reorder buffer
+ * and only writes ticks older than the newest one by the reorder window, in timestamp order.
+ * Buffered ticks are served too.
+ *
+ * The store only knows about ticks it has received: a pair is covered from its first tick in
+ * this run (or the retention cutoff, if later) and {@link #coveredSince} tells callers which part
+ * of a range must still come from Cosmos DB. Coverage restarts when the stream reconnects, and
+ * after the last written tick when a tick arrives too late to be stored in order. Segments left
+ * by a previous run are only kept to be appended to and expired; they are not served, since
+ * ticks published while the pod was down are missing from them.
+ */
+@Component
+@Slf4j
+public class TickStore {
+
+    private static final String SEGMENT_SUFFIX = ".ticks";
+    private static final String SOURCES_FILE = "sources";
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final boolean enabled;
+    private final Path directory;
+    private final Duration retention;
+    private final int segmentCapacity;
+    private final long reorderWindowMillis;
+
+    private final Map<String, PairTicks> pairs = new ConcurrentHashMap<>();
+
+    private final Counter appendedCounter;
+    private final Counter droppedCounter;
+
+    public TickStore(
+            MeterRegistry meterRegistry,
+            @Value("${app.fx-rates.tick-store.enabled:false}") boolean enabled,
+            @Value("${app.fx-rates.tick-store.directory:${java.io.tmpdir}/fx-rates-ticks}") String directory,
+            @Value("${app.fx-rates.tick-store.retention-days:7}") int retentionDays,
+            @Value("${app.fx-rates.tick-store.segment-capacity:131072}") int segmentCapacity,
+            @Value("${app.fx-rates.tick-store.reorder-window-ms:2000}") long reorderWindowMillis
+    ) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.retention = Duration.ofDays(retentionDays);
+        this.segmentCapacity = segmentCapacity;
+        this.reorderWindowMillis = reorderWindowMillis;
+
+        this.appendedCounter = Counter.builder("fx.tick-store.appended")
+                .description("Ticks appended to the local tick store")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("fx.tick-store.dropped")
+                .description("Ticks not stored (older than the pair's last written tick, or write errors)")
+                .register(meterRegistry);
+
+        if (enabled) {
+            loadSegments();
+        }
+
+        log.info("Tick store {} (directory: {}, retention: {} days, segment capacity: {} ticks)",
+                enabled ? "enabled" : "disabled", directory, retentionDays, segmentCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Append ticks from the update stream
+     */
+    public void append(List<FxRate> rates) {
+        if (!enabled) {
+            return;
+        }
+
+        for (FxRate rate : rates) {
+            if (rate == null || rate.getCurrencyPair() == null || rate.getTimestamp() == null) {
+                continue;
+            }
+            PairTicks pairTicks = pairs.computeIfAbsent(rate.getCurrencyPair(), PairTicks::new);
+            synchronized (pairTicks) {
+                buffer(pairTicks, rate);
+            }
+        }
+    }
+
+    /**
+     * Start of the stored range of a pair that has no gaps
+     *
+     * @return Earliest instant from which all ticks of the pair are stored, or null if none
+     */
+    public Instant coveredSince(String currencyPair) {
+        PairTicks pairTicks = enabled ? pairs.get(currencyPair) : null;
+        if (pairTicks == null || pairTicks.coveredSinceMillis == Long.MAX_VALUE) {
+            return null;
+        }
+        long retentionCutoff = System.currentTimeMillis() - retention.toMillis();
+        return Instant.ofEpochMilli(Math.max(pairTicks.coveredSinceMillis, retentionCutoff));
+    }
+
+    /**
+     * Forget coverage after a gap in the update stream (e.g. a reconnect at the latest position)
+     */
+    public void resetCoverage() {
+        pairs.values().forEach(pairTicks -> {
+            synchronized (pairTicks) {
+                pairTicks.coveredSinceMillis = Long.MAX_VALUE;
+            }
+        });
+    }
+
+    /**
+     * Stored ticks of a pair within a date range, newest first
+     *
+     * @param limit Maximum number of ticks (null = all)
+     */
+    public List<FxRate> findHistoricalRates(String currencyPair, Instant startDate, Instant endDate, Integer limit) {
+        List<FxRate> rates = new ArrayList<>();
+        PairTicks pairTicks = enabled ? pairs.get(currencyPair) : null;
+        if (pairTicks == null) {
+            return rates;
+        }
+
+        long startMillis = startDate.toEpochMilli();
+        long endMillis = endDate.toEpochMilli();
+        int maxRates = limit != null ? limit : Integer.MAX_VALUE;
+
+        // Buffered ticks are newer than every written one
+        synchronized (pairTicks) {
+            for (List<FxRate> sameTimestamp : pairTicks.pending.subMap(startMillis, true, endMillis, true)
+                    .descendingMap().values()) {
+                for (FxRate rate : sameTimestamp) {
+                    if (rates.size() < maxRates) {
+                        rates.add(rate);
+                    }
+                }
+            }
+        }
+
+        List<TickSegment> segments = pairTicks.segments;
+        for (int i = segments.size() - 1; i >= 0 && rates.size() < maxRates; i--) {
+            TickSegment segment = segments.get(i);
+            if (segment.isEmpty() || segment.firstTimestamp() > endMillis) {
+                continue;
+            }
+            if (segment.lastTimestamp() < startMillis) {
+                break;
+            }
+            segment.collectDescending(startMillis, endMillis, maxRates, rates, pairTicks.sources);
+        }
+        return rates;
+    }
+
+    /**
+     * Add a tick to the pair's reorder buffer and write the ticks that have left the window
+     * (called holding the pair's lock)
+     */
+    private void buffer(PairTicks pairTicks, FxRate rate) {
+        long timestamp = rate.getTimestamp().toEpochMilli();
+        if (timestamp < pairTicks.lastTimestamp) {
+            // Too late to keep segments sorted: the store has a gap before its last written tick
+            droppedCounter.increment();
+            if (pairTicks.coveredSinceMillis != Long.MAX_VALUE) {
+                pairTicks.coveredSinceMillis = pairTicks.lastTimestamp + 1;
+            }
+            log.debug("Dropping late tick for {} at {}", pairTicks.currencyPair, timestamp);
+            return;
+        }
+
+        List<FxRate> sameTimestamp = pairTicks.pending.computeIfAbsent(timestamp, key -> new ArrayList<>(1));
+        if (rate.getId() != null && sameTimestamp.stream().anyMatch(pending -> rate.getId().equals(pending.getId()))) {
+            return;
+        }
+        sameTimestamp.add(rate);
+        if (pairTicks.coveredSinceMillis == Long.MAX_VALUE) {
+            pairTicks.coveredSinceMillis = timestamp;
+        }
+
+        long writeUntil = pairTicks.pending.lastKey() - reorderWindowMillis;
+        while (!pairTicks.pending.isEmpty() && pairTicks.pending.firstKey() <= writeUntil) {
+            for (FxRate pending : pairTicks.pending.pollFirstEntry().getValue()) {
+                append(pairTicks, pending);
+            }
+        }
+    }
+
+    private void append(PairTicks pairTicks, FxRate rate) {
+        long timestamp = rate.getTimestamp().toEpochMilli();
+        try {
+            TickSegment segment = currentSegment(pairTicks, timestamp);
+            segment.append(rate, sourceIndex(pairTicks, rate.getSource()));
+            pairTicks.lastTimestamp = timestamp;
+            appendedCounter.increment();
+        } catch (IOException e) {
+            droppedCounter.increment();
+            if (pairTicks.coveredSinceMillis != Long.MAX_VALUE) {
+                pairTicks.coveredSinceMillis = timestamp + 1;
+            }
+            log.error("Error appending tick for {} to the tick store", pairTicks.currencyPair, e);
+        }
+    }
+
+    /**
+     * Index of a source in the pair's source list, adding it (and persisting the list) if new
+     */
+    private int sourceIndex(PairTicks pairTicks, String source) throws IOException {
+        if (source == null) {
+            return -1;
+        }
+        int index = pairTicks.sources.indexOf(source);
+        if (index >= 0) {
+            return index;
+        }
+        Path pairDirectory = Files.createDirectories(directory.resolve(pairTicks.currencyPair));
+        Files.writeString(pairDirectory.resolve(SOURCES_FILE), source + System.lineSeparator(),
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        pairTicks.sources.add(source);
+        return pairTicks.sources.size() - 1;
+    }
+
+    /**
+     * Segment for the next tick, rolled over when the day changes or it is full
+     */
+    private TickSegment currentSegment(PairTicks pairTicks, long timestamp) throws IOException {
+        String day = DAY_FORMAT.format(Instant.ofEpochMilli(timestamp).atOffset(ZoneOffset.UTC).toLocalDate());
+        List<TickSegment> segments = pairTicks.segments;
+        TickSegment current = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (current != null && !current.isFull() && day.equals(pairTicks.currentDay)) {
+            return current;
+        }
+
+        Path pairDirectory = Files.createDirectories(directory.resolve(pairTicks.currencyPair));
+        int sequence = day.equals(pairTicks.currentDay) ? pairTicks.currentSequence + 1 : 0;
+        Path path = pairDirectory.resolve(day + "-" + sequence + SEGMENT_SUFFIX);
+        TickSegment segment = TickSegment.create(path, pairTicks.currencyPair,
+                FixedPoint.scaleFor(pairTicks.currencyPair), segmentCapacity);
+        segments.add(segment);
+        pairTicks.currentDay = day;
+        pairTicks.currentSequence = sequence;
+        log.debug("Opened tick segment {}", path);
+
+        deleteExpiredSegments(pairTicks);
+        return segment;
+    }
+
+    /**
+     * Drop segments whose newest tick is older than the retention window
+     */
+    private void deleteExpiredSegments(PairTicks pairTicks) {
+        long retentionCutoff = System.currentTimeMillis() - retention.toMillis();
+        List<TickSegment> segments = pairTicks.segments;
+        for (TickSegment segment : segments) {
+            boolean current = segment == segments.get(segments.size() - 1);
+            if (current || (!segment.isEmpty() && segment.lastTimestamp() >= retentionCutoff)) {
+                return;
+            }
+            segments.remove(segment);
+            try {
+                // The mapping itself is released once no reader holds the segment
+                Files.deleteIfExists(segment.getPath());
+                log.debug("Deleted expired tick segment {}", segment.getPath());
+            } catch (IOException e) {
+                log.warn("Error deleting tick segment {}: {}", segment.getPath(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Map the segments left by a previous run, so they are appended to and expired like new ones
+     * (coverage still starts with the first tick of this run)
+     */
+    private void loadSegments() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> pairDirectories = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path pairDirectory : pairDirectories) {
+                String currencyPair = pairDirectory.getFileName().toString();
+                PairTicks pairTicks = new PairTicks(currencyPair);
+
+                Path sourcesFile = pairDirectory.resolve(SOURCES_FILE);
+                if (Files.exists(sourcesFile)) {
+                    pairTicks.sources.addAll(Files.readAllLines(sourcesFile, StandardCharsets.UTF_8));
+                }
+
+                List<Path> paths = new ArrayList<>();
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(pairDirectory, "*" + SEGMENT_SUFFIX)) {
+                    files.forEach(paths::add);
+                }
+                paths.sort((a, b) -> compareSegmentNames(a.getFileName().toString(), b.getFileName().toString()));
+
+                for (Path path : paths) {
+                    // Unreadable files (e.g. an older record layout) still take up their name
+                    String name = path.getFileName().toString();
+                    pairTicks.currentDay = name.substring(0, name.indexOf('-'));
+                    pairTicks.currentSequence = segmentSequence(name);
+                    try {
+                        TickSegment segment = TickSegment.open(path, currencyPair, FixedPoint.scaleFor(currencyPair));
+                        pairTicks.segments.add(segment);
+                        if (!segment.isEmpty()) {
+                            pairTicks.lastTimestamp = Math.max(pairTicks.lastTimestamp, segment.lastTimestamp());
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        log.warn("Skipping unreadable tick segment {}: {}", path, e.getMessage());
+                    }
+                }
+
+                deleteExpiredSegments(pairTicks);
+                pairs.put(currencyPair, pairTicks);
+                log.info("Loaded {} tick segments for {}", pairTicks.segments.size(), currencyPair);
+            }
+        } catch (IOException e) {
+            log.error("Error loading tick segments from {}", directory, e);
+        }
+    }
+
+    /**
+     * Order segment files by day, then sequence number
+     */
+    private static int compareSegmentNames(String a, String b) {
+        int byDay = a.substring(0, a.indexOf('-')).compareTo(b.substring(0, b.indexOf('-')));
+        return byDay != 0 ? byDay : Integer.compare(segmentSequence(a), segmentSequence(b));
+    }
+
+    private static int segmentSequence(String name) {
+        return Integer.parseInt(name.substring(name.indexOf('-') + 1, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Segments (oldest first) and append state of one pair; appends are synchronized on this
+     */
+    private static final class PairTicks {
+        private final String currencyPair;
+        private final List<TickSegment> segments = new CopyOnWriteArrayList<>();
+        // Sources referenced by index from segment records, in the order of the sources file
+        private final List<String> sources = new CopyOnWriteArrayList<>();
+        // Reorder buffer: ticks not written yet, by timestamp
+        private final TreeMap<Long, List<FxRate>> pending = new TreeMap<>();
+
+        private String currentDay;
+        private int currentSequence;
+        private long lastTimestamp = Long.MIN_VALUE;
+
+        // First tick received in this run, or the first after a late tick; Long.MAX_VALUE until then
+        private volatile long coveredSinceMillis = Long.MAX_VALUE;
+
+        private PairTicks(String currencyPair) {
+            this.currencyPair = currencyPair;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.fexco.fxrates.api.service;
+
+import com.fexco.fxrates.api.cache.FxRateHistoryCache;
+import com.fexco.fxrates.api.cache.FxRateNearCache;
+import com.fexco.fxrates.api.repository.FxRateRepository;
+import com.fexco.fxrates.api.store.TickStore;
+import com.fexco.fxrates.common.model.FxRate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FxRateServiceImplHistoryTest {
+
+    private static final String PAIR = "EURUSD";
+
+    private final FxRateRepository repository = mock(FxRateRepository.class);
+    private final TickStore tickStore = mock(TickStore.class);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, String> stringRedisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+
+    // Redis contents, keyed by cache key
+    private final Map<String, String> redis = new HashMap<>();
+    // Ticks every 15 minutes from 08:00 to 11:45
+    private final List<FxRate> ticks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 16; i++) {
+            ticks.add(rate(Instant.parse("2024-01-15T08:00:00Z").plusSeconds(i * 900L)));
+        }
+
+        when(repository.findHistoricalRates(eq(PAIR), any(Instant.class), any(Instant.class), any()))
+                .thenAnswer(invocation -> findTicks(invocation.getArgument(1), invocation.getArgument(2),
+                        invocation.getArgument(3)));
+
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> keys = invocation.getArgument(0);
+            return keys.stream().map(redis::get).toList();
+        });
+        doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOperations).set(anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void closedBucketsAreLoadedWholeAndTrimmedToTheRange() {
+        FxRateServiceImpl service = service(historyCache(true, 168));
+
+        List<FxRate> rates = service.getHistoricalRates("EUR", "USD",
+                "2024-01-15T08:20:00Z", "2024-01-15T10:50:00Z", null);
+
+        assertThat(clockTimes(rates)).containsExactly(
+                "10:45", "10:30", "10:15", "10:00", "09:45", "09:30", "09:15", "09:00", "08:45", "08:30");
+        verify(repository).findHistoricalRates(PAIR, Instant.parse("2024-01-15T08:00:00Z"),
+                Instant.parse("2024-01-15T08:59:59.999Z"), null);
+        verify(repository).findHistoricalRates(PAIR, Instant.parse("2024-01-15T10:00:00Z"),
+                Instant.parse("2024-01-15T10:59:59.999Z"), null);
+        assertThat(redis).hasSize(3);
+    }
+
+    @Test
+    void cachedBucketsServeOtherRangesWithoutQueries() {
+        FxRateServiceImpl service = service(historyCache(true, 168));
+        service.getHistoricalRates("EUR", "USD", "2024-01-15T08:00:00Z", "2024-01-15T10:59:59Z", null);
+
+        List<FxRate> rates = service.getHistoricalRates("EUR", "USD",
+                "2024-01-15T09:10:00Z", "2024-01-15T10:20:00Z", null);
+
+        assertThat(clockTimes(rates)).containsExactly("10:15", "10:00", "09:45", "09:30", "09:15");
+        verify(repository, times(3)).findHistoricalRates(eq(PAIR), any(Instant.class), any(Instant.class), any());
+    }
+
+    @Test
+    void emptyBucketsAreCachedToo() {
+        FxRateServiceImpl service = service(historyCache(true, 168));
+
+        assertThat(service.getHistoricalRates("EUR", "USD", "2024-01-15T05:00:00Z", "2024-01-15T05:30:00Z", null))
+                .isEmpty();
+        assertThat(service.getHistoricalRates("EUR", "USD", "2024-01-15T05:10:00Z", "2024-01-15T05:50:00Z", null))
+                .isEmpty();
+
+        assertThat(redis).hasSize(1);
+        verify(repository, times(1)).findHistoricalRates(eq(PAIR), any(Instant.class), any(Instant.class), any());
+    }
+
+    @Test
+    void limitStopsBeforeOlderBucketsAreLoaded() {
+        FxRateServiceImpl service = service(historyCache(true, 168));
+
+        List<FxRate> rates = service.getHistoricalRates("EUR", "USD",
+                "2024-01-15T08:20:00Z", "2024-01-15T10:50:00Z", 3);
+
+        assertThat(clockTimes(rates)).containsExactly("10:45", "10:30", "10:15");
+        verify(repository, times(1)).findHistoricalRates(eq(PAIR), any(Instant.class), any(Instant.class), any());
+    }
+
+    @Test
+    void limitCountsRatesAcrossBuckets() {
+        FxRateServiceImpl service = service(historyCache(true, 168));
+
+        List<FxRate> rates = service.getHistoricalRates("EUR", "USD",
+                "2024-01-15T08:20:00Z", "2024-01-15T10:50:00Z", 6);
+
+        assertThat(clockTimes(rates)).containsExactly("10:45", "10:30", "10:15", "10:00", "09:45", "09:30");
+    }
+
+    @Test
+    void rangesSpanningTooManyBucketsBypassTheCache() {
+        FxRateServiceImpl service = service(historyCache(true, 2));
+
+        List<FxRate> rates = service.getHistoricalRates("EUR", "USD",
+                "2024-01-15T08:20:00Z", "2024-01-15T10:50:00Z", null);
+
+        assertThat(rates).hasSize(10);
+        verify(repository).findHistoricalRates(PAIR, Instant.parse("2024-01-15T08:20:00Z"),
+                Instant.parse("2024-01-15T10:50:00Z"), null);
+        verify(valueOperations, never()).multiGet(anyCollection());
+        assertThat(redis).isEmpty();
+    }
+
+    @Test
+    void disabledCacheQueriesTheRangeDirectly() {
+        FxRateServiceImpl service = service(historyCache(false, 168));
+
+        List<FxRate> rates = service.getHistoricalRates("EUR", "USD",
+                "2024-01-15T08:20:00Z", "2024-01-15T10:50:00Z", null);
+
+        assertThat(rates).hasSize(10);
+        verify(repository).findHistoricalRates(PAIR, Instant.parse("2024-01-15T08:20:00Z"),
+                Instant.parse("2024-01-15T10:50:00Z"), null);
+        assertThat(redis).isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private FxRateServiceImpl service(FxRateHistoryCache historyCache) {
+        return new FxRateServiceImpl(repository, mock(FxRateNearCache.class), historyCache, tickStore,
+                mock(RedisTemplate.class), stringRedisTemplate);
+    }
+
+    private FxRateHistoryCache historyCache(boolean enabled, int maxBuckets) {
+        return new FxRateHistoryCache(stringRedisTemplate, Jackson2ObjectMapperBuilder.json().build(),
+                new SimpleMeterRegistry(), enabled, 60, 30, maxBuckets);
+    }
+
+    /**
+     * What the repository returns for a range: ticks in [start, end], newest first, up to the limit
+     */
+    private List<FxRate> findTicks(Instant start, Instant end, Integer limit) {
+        return ticks.stream()
+                .filter(rate -> !rate.getTimestamp().isBefore(start) && !rate.getTimestamp().isAfter(end))
+                .sorted(Comparator.comparing(FxRate::getTimestamp).reversed())
+                .limit(limit != null ? limit : Long.MAX_VALUE)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private static List<String> clockTimes(List<FxRate> rates) {
+        return rates.stream().map(rate -> rate.getTimestamp().toString().substring(11, 16)).toList();
+    }
+
+    private static FxRate rate(Instant timestamp) {
+        return FxRate.builder()
+                .currencyPair(PAIR)
+                .fromCurrency("EUR")
+                .toCurrency("USD")
+                .rate(new BigDecimal("1.0851"))
+                .bid(new BigDecimal("1.0845"))
+                .ask(new BigDecimal("1.0857"))
+                .timestamp(timestamp)
+                .build();
+    }
+}
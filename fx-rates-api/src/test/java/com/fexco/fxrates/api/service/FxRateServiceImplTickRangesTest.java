@@ -0,0 +1,79 @@
+package com.fexco.fxrates.api.service;
+
+import com.fexco.fxrates.common.model.CandleInterval;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FxRateServiceImplTickRangesTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long T10_00 = Instant.parse("2024-01-15T10:00:00Z").toEpochMilli();
+
+    @Test
+    void fullyRolledUpAlignedRangeNeedsNoTicks() {
+        Set<Long> rolledUp = Set.of(T10_00, T10_00 + MINUTE, T10_00 + 2 * MINUTE);
+
+        List<long[]> ranges = FxRateServiceImpl.tickRanges(T10_00, T10_00 + 3 * MINUTE,
+                CandleInterval.ONE_MINUTE, rolledUp);
+
+        assertThat(ranges).isEmpty();
+    }
+
+    @Test
+    void noRollupsMeansOneTickRange() {
+        List<long[]> ranges = FxRateServiceImpl.tickRanges(T10_00 + 30_000, T10_00 + 5 * MINUTE,
+                CandleInterval.ONE_MINUTE, Set.of());
+
+        assertThat(ranges).containsExactly(new long[]{T10_00 + 30_000, T10_00 + 5 * MINUTE});
+    }
+
+    @Test
+    void partialEdgeBucketsComeFromTicks() {
+        // 10:00:30 to 10:05:30, with every whole minute rolled up
+        Set<Long> rolledUp = Set.of(T10_00 + MINUTE, T10_00 + 2 * MINUTE, T10_00 + 3 * MINUTE, T10_00 + 4 * MINUTE);
+
+        List<long[]> ranges = FxRateServiceImpl.tickRanges(T10_00 + 30_000, T10_00 + 5 * MINUTE + 30_000,
+                CandleInterval.ONE_MINUTE, rolledUp);
+
+        assertThat(ranges).containsExactly(
+                new long[]{T10_00 + 30_000, T10_00 + MINUTE},
+                new long[]{T10_00 + 5 * MINUTE, T10_00 + 5 * MINUTE + 30_000});
+    }
+
+    @Test
+    void missingRollupsInTheMiddleComeFromTicks() {
+        // 10:02 and 10:04 are missing; 10:04 joins the trailing edge
+        Set<Long> rolledUp = Set.of(T10_00 + MINUTE, T10_00 + 3 * MINUTE);
+
+        List<long[]> ranges = FxRateServiceImpl.tickRanges(T10_00 + 30_000, T10_00 + 5 * MINUTE + 30_000,
+                CandleInterval.ONE_MINUTE, rolledUp);
+
+        assertThat(ranges).containsExactly(
+                new long[]{T10_00 + 30_000, T10_00 + MINUTE},
+                new long[]{T10_00 + 2 * MINUTE, T10_00 + 3 * MINUTE},
+                new long[]{T10_00 + 4 * MINUTE, T10_00 + 5 * MINUTE + 30_000});
+    }
+
+    @Test
+    void adjacentMissingBucketsAreJoined() {
+        Set<Long> rolledUp = Set.of(T10_00, T10_00 + 4 * MINUTE);
+
+        List<long[]> ranges = FxRateServiceImpl.tickRanges(T10_00, T10_00 + 5 * MINUTE,
+                CandleInterval.ONE_MINUTE, rolledUp);
+
+        assertThat(ranges).containsExactly(new long[]{T10_00 + MINUTE, T10_00 + 4 * MINUTE});
+    }
+
+    @Test
+    void rangeInsideOneBucketComesFromTicks() {
+        List<long[]> ranges = FxRateServiceImpl.tickRanges(T10_00 + 10_000, T10_00 + 50_000,
+                CandleInterval.ONE_MINUTE, Set.of(T10_00));
+
+        assertThat(ranges).containsExactly(new long[]{T10_00 + 10_000, T10_00 + 50_000});
+    }
+}
@@ -0,0 +1,79 @@
+package com.fexco.fxrates.api.service;
+
+import com.fexco.fxrates.common.exception.FxRateValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryQueryTest {
+
+    private static final Instant START = Instant.parse("2024-01-15T10:00:00Z");
+    private static final Instant END = Instant.parse("2024-01-15T11:00:00.250Z");
+
+    @Test
+    void cursorRoundTrips() {
+        HistoryQuery query = new HistoryQuery("EURUSD", START, END, "token-1");
+
+        HistoryQuery decoded = HistoryQuery.fromCursor(query.toCursor(), "EURUSD");
+
+        assertThat(decoded).isEqualTo(query);
+    }
+
+    @Test
+    void continuationTokenMayContainTheSeparator() {
+        // Cosmos DB continuation tokens are free-form JSON
+        String token = "{\"token\":\"+RID:~abc==|#RT:1\",\"range\":{\"min\":\"\",\"max\":\"FF\"}}";
+        HistoryQuery query = new HistoryQuery("USDJPY", START, END, token);
+
+        HistoryQuery decoded = HistoryQuery.fromCursor(query.toCursor(), "USDJPY");
+
+        assertThat(decoded.continuationToken()).isEqualTo(token);
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        HistoryQuery query = new HistoryQuery("EURUSD", START, END, "??>>~~//++");
+
+        assertThat(query.toCursor()).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void resumeAtKeepsTheRange() {
+        HistoryQuery query = new HistoryQuery("EURUSD", START, END, null);
+
+        HistoryQuery resumed = query.resumeAt("token-2");
+
+        assertThat(resumed).isEqualTo(new HistoryQuery("EURUSD", START, END, "token-2"));
+    }
+
+    @Test
+    void cursorForAnotherPairIsRejected() {
+        String cursor = new HistoryQuery("EURUSD", START, END, "token-1").toCursor();
+
+        assertThatThrownBy(() -> HistoryQuery.fromCursor(cursor, "GBPUSD"))
+                .isInstanceOf(FxRateValidationException.class);
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        String notBase64 = "not base64!";
+        String tooFewParts = encode("EURUSD|2024-01-15T10:00:00Z");
+        String badDate = encode("EURUSD|yesterday|2024-01-15T11:00:00Z|token");
+
+        assertThatThrownBy(() -> HistoryQuery.fromCursor(notBase64, "EURUSD"))
+                .isInstanceOf(FxRateValidationException.class);
+        assertThatThrownBy(() -> HistoryQuery.fromCursor(tooFewParts, "EURUSD"))
+                .isInstanceOf(FxRateValidationException.class);
+        assertThatThrownBy(() -> HistoryQuery.fromCursor(badDate, "EURUSD"))
+                .isInstanceOf(FxRateValidationException.class);
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,179 @@
+package com.fexco.fxrates.api.store;
+
+import com.fexco.fxrates.common.model.FxRate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TickSegmentTest {
+
+    private static final String PAIR = "EURUSD";
+    private static final int SCALE = 8;
+    private static final List<String> SOURCES = List.of("REUTERS", "BLOOMBERG");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void collectsTheRangeNewestFirst() throws IOException {
+        TickSegment segment = segmentWith(1000, 2000, 3000, 4000, 5000);
+
+        assertThat(timestamps(collect(segment, 2000, 4000, 10))).containsExactly(4000L, 3000L, 2000L);
+        assertThat(timestamps(collect(segment, 1500, 4500, 10))).containsExactly(4000L, 3000L, 2000L);
+    }
+
+    @Test
+    void rangesOutsideTheSegmentAreEmpty() throws IOException {
+        TickSegment segment = segmentWith(1000, 2000, 3000);
+
+        assertThat(collect(segment, 0, 999, 10)).isEmpty();
+        assertThat(collect(segment, 3001, 9000, 10)).isEmpty();
+        assertThat(collect(segment, 1001, 1999, 10)).isEmpty();
+    }
+
+    @Test
+    void rangesCoveringTheEndsIncludeFirstAndLastTick() throws IOException {
+        TickSegment segment = segmentWith(1000, 2000, 3000);
+
+        assertThat(timestamps(collect(segment, 0, 1000, 10))).containsExactly(1000L);
+        assertThat(timestamps(collect(segment, 3000, Long.MAX_VALUE, 10))).containsExactly(3000L);
+        assertThat(timestamps(collect(segment, Long.MIN_VALUE, Long.MAX_VALUE, 10)))
+                .containsExactly(3000L, 2000L, 1000L);
+    }
+
+    @Test
+    void equalTimestampsAreAllCollected() throws IOException {
+        TickSegment segment = segmentWith(1000, 2000, 2000, 2000, 3000);
+
+        assertThat(timestamps(collect(segment, 2000, 2000, 10))).containsExactly(2000L, 2000L, 2000L);
+    }
+
+    @Test
+    void limitKeepsTheNewestTicks() throws IOException {
+        TickSegment segment = segmentWith(1000, 2000, 3000, 4000, 5000);
+
+        assertThat(timestamps(collect(segment, 0, 4000, 2))).containsExactly(4000L, 3000L);
+    }
+
+    @Test
+    void limitCountsTicksAlreadyInTheList() throws IOException {
+        TickSegment segment = segmentWith(1000, 2000, 3000);
+        List<FxRate> rates = new ArrayList<>();
+        rates.add(rate(9000, 0));
+
+        segment.collectDescending(0, 9000, 2, rates, SOURCES);
+
+        assertThat(timestamps(rates)).containsExactly(9000L, 3000L);
+    }
+
+    @Test
+    void emptySegmentCollectsNothing() throws IOException {
+        TickSegment segment = TickSegment.create(directory.resolve("empty.seg"), PAIR, SCALE, 8);
+
+        assertThat(segment.isEmpty()).isTrue();
+        assertThat(collect(segment, Long.MIN_VALUE, Long.MAX_VALUE, 10)).isEmpty();
+    }
+
+    @Test
+    void searchesEveryPrefixOfALargerSegment() throws IOException {
+        TickSegment segment = TickSegment.create(directory.resolve("large.seg"), PAIR, SCALE, 1000);
+        for (int i = 0; i < 1000; i++) {
+            segment.append(rate(i * 10L, 0), 0);
+
+            // The end falls between two ticks: [i*5, i*10 - 5] holds ticks ceil(i/2) .. i-1
+            long end = i * 10L - 5;
+            List<FxRate> rates = collect(segment, i * 5L, end, Integer.MAX_VALUE);
+            assertThat(rates).hasSize(i / 2);
+            if (!rates.isEmpty()) {
+                assertThat(rates.get(0).getTimestamp().toEpochMilli()).isEqualTo((i - 1) * 10L);
+            }
+        }
+        assertThat(segment.isFull()).isTrue();
+        assertThat(segment.firstTimestamp()).isZero();
+        assertThat(segment.lastTimestamp()).isEqualTo(9990L);
+    }
+
+    @Test
+    void readsBackTheStoredTick() throws IOException {
+        TickSegment segment = TickSegment.create(directory.resolve("ticks.seg"), PAIR, SCALE, 8);
+        FxRate rate = rate(1000, 0.95);
+        rate.setCreatedAt(Instant.ofEpochMilli(1100));
+        segment.append(rate, 1);
+        segment.append(rate(2000, 0), -1);
+
+        List<FxRate> rates = collect(segment, 0, 3000, 10);
+
+        FxRate untagged = rates.get(0);
+        assertThat(untagged.getSource()).isNull();
+        assertThat(untagged.getConfidenceScore()).isNull();
+        assertThat(untagged.getCreatedAt()).isNull();
+
+        FxRate read = rates.get(1);
+        assertThat(read.getId()).isEqualTo(FxRate.tickDocumentId(PAIR, 1000));
+        assertThat(read.getSource()).isEqualTo("BLOOMBERG");
+        assertThat(read.getConfidenceScore()).isEqualTo(0.95);
+        assertThat(read.getCreatedAt()).isEqualTo(Instant.ofEpochMilli(1100));
+        assertThat(read.getBid()).isEqualByComparingTo("1.0845");
+        assertThat(read.getAsk()).isEqualByComparingTo("1.0857");
+    }
+
+    @Test
+    void reopenedSegmentKeepsItsTicks() throws IOException {
+        Path path = directory.resolve("reopen.seg");
+        TickSegment segment = TickSegment.create(path, PAIR, SCALE, 8);
+        segment.append(rate(1000, 0), 0);
+        segment.append(rate(2000, 0), 0);
+
+        TickSegment reopened = TickSegment.open(path, PAIR, SCALE);
+
+        assertThat(reopened.isFull()).isFalse();
+        assertThat(timestamps(collect(reopened, 0, 3000, 10))).containsExactly(2000L, 1000L);
+    }
+
+    @Test
+    void openRejectsAnotherScale() throws IOException {
+        Path path = directory.resolve("scale.seg");
+        TickSegment.create(path, PAIR, SCALE, 8);
+
+        assertThatThrownBy(() -> TickSegment.open(path, "USDJPY", 6))
+                .isInstanceOf(IOException.class);
+    }
+
+    private TickSegment segmentWith(long... timestamps) throws IOException {
+        TickSegment segment = TickSegment.create(directory.resolve("segment.seg"), PAIR, SCALE, 16);
+        for (long timestamp : timestamps) {
+            segment.append(rate(timestamp, 0), 0);
+        }
+        return segment;
+    }
+
+    private static List<FxRate> collect(TickSegment segment, long start, long end, int limit) {
+        List<FxRate> rates = new ArrayList<>();
+        segment.collectDescending(start, end, limit, rates, SOURCES);
+        return rates;
+    }
+
+    private static List<Long> timestamps(List<FxRate> rates) {
+        return rates.stream().map(rate -> rate.getTimestamp().toEpochMilli()).toList();
+    }
+
+    private static FxRate rate(long timestampMillis, double confidenceScore) {
+        return FxRate.builder()
+                .currencyPair(PAIR)
+                .rate(new BigDecimal("1.0851"))
+                .bid(new BigDecimal("1.0845"))
+                .ask(new BigDecimal("1.0857"))
+                .confidenceScore(confidenceScore > 0 ? confidenceScore : null)
+                .timestamp(Instant.ofEpochMilli(timestampMillis))
+                .build();
+    }
+}
@@ -6,11 +6,21 @@ import com.fexco.fxrates.ingestion.provider.FxProviderFactory;
 import com.fexco.fxrates.ingestion.provider.FxRateProvider;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Client for fetching FX rates from external providers
@@ -19,6 +29,10 @@ import java.util.List;
  * - Alpha Vantage (professional, real bid/ask)
  * - Mock Reuters (realistic simulation)
  * - Demo Provider (simple fallback)
+ *
+ * In aggregate mode every available non-synthetic provider is queried concurrently with a shared
+ * timeout, and the quotes that arrive in time are merged per pair by FxRateAggregator.
+ * Aggregation needs at least two market data providers; with fewer it falls back to single mode.
  */
 @Component
 @Slf4j
@@ -26,33 +40,114 @@ import java.util.List;
 public class ExternalFxProviderClient {
 
     private final FxProviderFactory providerFactory;
+    private final FxRateAggregator rateAggregator;
+
+    private final ExecutorService providerExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "fx-provider-fetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.ingestion.provider.mode:single}")
+    private String providerMode;
+
+    @Value("${app.ingestion.provider.aggregate.timeout-ms:3000}")
+    private long aggregateTimeoutMs;
+
+    @Value("${app.ingestion.provider.aggregate.min-providers:1}")
+    private int minProviders;
 
     @CircuitBreaker(name = "externalProvider", fallbackMethod = "fetchRatesFallback")
     @Retry(name = "externalProvider")
     public List<FxRate> fetchRates(List<String> currencyPairs) {
         try {
-            // Get the configured provider
-            FxRateProvider provider = providerFactory.getProvider();
+            if ("aggregate".equals(providerMode)) {
+                return fetchAggregatedRates(currencyPairs);
+            }
 
-            log.info("Fetching rates from {} for {} pairs",
-                    provider.getProviderName(), currencyPairs.size());
-
-            // Fetch rates using the provider
-            List<FxRate> rates = provider.fetchRates(currencyPairs);
-
-            log.info("Successfully fetched {} rates from {} (confidence: {})",
-                    rates.size(),
-                    provider.getProviderName(),
-                    provider.getConfidenceScore());
-
-            return rates;
+            return fetchFromProvider(providerFactory.getProvider(), currencyPairs);
 
+        } catch (ExternalProviderException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error fetching rates: {}", e.getMessage());
             throw new ExternalProviderException("FxProvider", "Failed to fetch rates", e);
         }
     }
 
+    /**
+     * Fetch rates from a single provider
+     */
+    private List<FxRate> fetchFromProvider(FxRateProvider provider, List<String> currencyPairs) throws Exception {
+        log.info("Fetching rates from {} for {} pairs",
+                provider.getProviderName(), currencyPairs.size());
+
+        // Fetch rates using the provider
+        List<FxRate> rates = provider.fetchRates(currencyPairs);
+
+        log.info("Successfully fetched {} rates from {} (confidence: {})",
+                rates.size(),
+                provider.getProviderName(),
+                provider.getConfidenceScore());
+
+        return rates;
+    }
+
+    /**
+     * Query all available market data providers in parallel and merge their quotes
+     *
+     * Providers that fail or do not answer within the timeout are cancelled and ignored,
+     * so the tick is bounded by the timeout rather than the slowest provider.
+     * With fewer than two market data providers there is nothing to merge, so the rates come
+     * from the one available (or, with none, the provider single mode would use) without a quorum.
+     */
+    private List<FxRate> fetchAggregatedRates(List<String> currencyPairs) throws Exception {
+        List<FxRateProvider> providers = providerFactory.getAggregatableProviders();
+        if (providers.size() < 2) {
+            log.debug("{} market data providers available, fetching without aggregation", providers.size());
+            FxRateProvider provider = providers.isEmpty() ? providerFactory.getProvider() : providers.get(0);
+            return fetchFromProvider(provider, currencyPairs);
+        }
+
+        log.info("Fetching rates from {} providers in parallel for {} pairs (timeout: {}ms)",
+                providers.size(), currencyPairs.size(), aggregateTimeoutMs);
+
+        List<Callable<List<FxRate>>> tasks = new ArrayList<>(providers.size());
+        for (FxRateProvider provider : providers) {
+            tasks.add(() -> provider.fetchRates(currencyPairs));
+        }
+
+        // Unfinished tasks are cancelled (interrupted) when the timeout elapses
+        List<Future<List<FxRate>>> futures = providerExecutor.invokeAll(tasks, aggregateTimeoutMs, TimeUnit.MILLISECONDS);
+
+        List<List<FxRate>> responses = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            FxRateProvider provider = providers.get(i);
+            try {
+                List<FxRate> rates = futures.get(i).get();
+                log.debug("Provider {} returned {} rates", provider.getProviderName(), rates.size());
+                responses.add(rates);
+            } catch (CancellationException e) {
+                log.warn("Provider {} timed out after {}ms", provider.getProviderName(), aggregateTimeoutMs);
+            } catch (ExecutionException e) {
+                log.warn("Provider {} failed: {}", provider.getProviderName(), e.getCause().getMessage());
+            }
+        }
+
+        if (responses.size() < minProviders) {
+            throw new ExternalProviderException("Aggregate",
+                    String.format("Only %d of %d providers responded (quorum: %d)",
+                            responses.size(), providers.size(), minProviders));
+        }
+
+        List<FxRate> rates = rateAggregator.aggregate(responses);
+
+        log.info("Successfully aggregated {} rates from {}/{} providers",
+                rates.size(), responses.size(), providers.size());
+
+        return rates;
+    }
+
     /**
      * Fallback method for circuit breaker
      */
@@ -61,4 +156,9 @@ public class ExternalFxProviderClient {
         log.warn("Returning empty list. No rates available from provider.");
         return List.of(); // Return empty list in fallback
     }
+
+    @PreDestroy
+    public void shutdown() {
+        providerExecutor.shutdownNow();
+    }
 }
@@ -0,0 +1,146 @@
+package com.fexco.fxrates.ingestion.client;
+
+import com.fexco.fxrates.common.model.FxRate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Merges quotes for the same currency pair coming from several providers
+ *
+ * Strategies (app.ingestion.provider.aggregate.strategy):
+ * - freshest: the quote with the latest provider timestamp
+ * - confidence-weighted: bid/ask/rate averaged using each provider's confidence score
+ * - tightest-spread: the quote with the smallest ask - bid
+ */
+@Component
+@Slf4j
+public class FxRateAggregator {
+
+    public enum Strategy {
+        FRESHEST,
+        CONFIDENCE_WEIGHTED,
+        TIGHTEST_SPREAD
+    }
+
+    private final Strategy strategy;
+
+    public FxRateAggregator(
+            @Value("${app.ingestion.provider.aggregate.strategy:confidence-weighted}") String strategy
+    ) {
+        this.strategy = Strategy.valueOf(strategy.trim().toUpperCase().replace('-', '_'));
+        log.info("FxRateAggregator initialized with strategy: {}", this.strategy);
+    }
+
+    /**
+     * Merge the responses of several providers into one rate per currency pair
+     *
+     * @param providerResponses Rates returned by each provider that answered in time
+     * @return One rate per currency pair, in first-seen order
+     */
+    public List<FxRate> aggregate(List<List<FxRate>> providerResponses) {
+        Map<String, List<FxRate>> quotesByPair = new LinkedHashMap<>();
+        for (List<FxRate> response : providerResponses) {
+            for (FxRate rate : response) {
+                quotesByPair.computeIfAbsent(rate.getCurrencyPair(), k -> new ArrayList<>()).add(rate);
+            }
+        }
+
+        List<FxRate> merged = new ArrayList<>(quotesByPair.size());
+        quotesByPair.forEach((pair, quotes) -> merged.add(quotes.size() == 1 ? quotes.get(0) : merge(quotes)));
+
+        log.debug("Aggregated {} provider responses into {} rates using {}",
+                providerResponses.size(), merged.size(), strategy);
+
+        return merged;
+    }
+
+    private FxRate merge(List<FxRate> quotes) {
+        switch (strategy) {
+            case FRESHEST:
+                return quotes.stream()
+                        .max(Comparator.comparing(FxRate::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder())))
+                        .orElseThrow();
+            case TIGHTEST_SPREAD:
+                return quotes.stream()
+                        .filter(q -> q.getBid() != null && q.getAsk() != null)
+                        .min(Comparator.comparing(FxRate::getSpread))
+                        .orElse(quotes.get(0));
+            case CONFIDENCE_WEIGHTED:
+            default:
+                return weightedMerge(quotes);
+        }
+    }
+
+    /**
+     * Confidence-weighted average of rate, bid and ask across all quotes
+     */
+    private FxRate weightedMerge(List<FxRate> quotes) {
+        FxRate first = quotes.get(0);
+
+        BigDecimal totalWeight = BigDecimal.ZERO;
+        Instant latestTimestamp = null;
+        List<String> sources = new ArrayList<>();
+
+        for (FxRate quote : quotes) {
+            totalWeight = totalWeight.add(weightOf(quote));
+            if (latestTimestamp == null || (quote.getTimestamp() != null && quote.getTimestamp().isAfter(latestTimestamp))) {
+                latestTimestamp = quote.getTimestamp();
+            }
+            sources.add(quote.getSource());
+        }
+
+        return FxRate.builder()
+                .fromCurrency(first.getFromCurrency())
+                .toCurrency(first.getToCurrency())
+                .currencyPair(first.getCurrencyPair())
+                .rate(weightedAverage(quotes, FxRate::getRate))
+                .bid(weightedAverage(quotes, FxRate::getBid))
+                .ask(weightedAverage(quotes, FxRate::getAsk))
+                .timestamp(latestTimestamp)
+                .source("Aggregated(" + String.join(",", sources) + ")")
+                .confidenceScore(totalWeight.divide(BigDecimal.valueOf(quotes.size()), MathContext.DECIMAL64).doubleValue())
+                .ttlSeconds(first.getTtlSeconds())
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private BigDecimal weightedAverage(List<FxRate> quotes, Function<FxRate, BigDecimal> field) {
+        BigDecimal weightedSum = BigDecimal.ZERO;
+        BigDecimal usedWeight = BigDecimal.ZERO;
+        int scale = 0;
+
+        for (FxRate quote : quotes) {
+            BigDecimal value = field.apply(quote);
+            if (value == null) {
+                continue;
+            }
+            BigDecimal weight = weightOf(quote);
+            weightedSum = weightedSum.add(value.multiply(weight));
+            usedWeight = usedWeight.add(weight);
+            scale = Math.max(scale, value.scale());
+        }
+
+        if (usedWeight.signum() == 0) {
+            return null;
+        }
+
+        return weightedSum.divide(usedWeight, MathContext.DECIMAL64).setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal weightOf(FxRate quote) {
+        Double confidence = quote.getConfidenceScore();
+        return BigDecimal.valueOf(confidence != null && confidence > 0 ? confidence : 0.5);
+    }
+}
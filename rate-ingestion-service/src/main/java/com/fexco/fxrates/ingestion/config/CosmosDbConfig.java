@@ -9,6 +9,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 /**
  * Configuration for Azure Cosmos DB
@@ -29,6 +30,9 @@ public class CosmosDbConfig {
     @Value("${azure.cosmos.container:rates}")
     private String containerName;
 
+    @Value("${azure.cosmos.rollup-container:rollups}")
+    private String rollupContainerName;
+
     @Bean
     public CosmosClient cosmosClient() {
         if (endpoint == null || endpoint.isEmpty()) {
@@ -47,6 +51,7 @@ public class CosmosDbConfig {
     }
 
     @Bean
+    @Primary
     public CosmosContainer cosmosContainer(CosmosClient cosmosClient) {
         if (cosmosClient == null) {
             log.warn("Cosmos DB client not available. Container will not be initialized.");
@@ -61,4 +66,18 @@ public class CosmosDbConfig {
         log.info("Cosmos DB container initialized successfully");
         return container;
     }
+
+    /**
+     * Container for the minute/hour/day rollup documents (partitioned by currency pair)
+     */
+    @Bean
+    public CosmosContainer rollupContainer(CosmosClient cosmosClient) {
+        if (cosmosClient == null) {
+            log.warn("Cosmos DB client not available. Rollup container will not be initialized.");
+            return null;
+        }
+
+        log.info("Getting Cosmos DB rollup container: {} in database: {}", rollupContainerName, databaseName);
+        return cosmosClient.getDatabase(databaseName).getContainer(rollupContainerName);
+    }
 }
@@ -3,9 +3,11 @@ package com.fexco.fxrates.ingestion.provider;
 import com.fexco.fxrates.common.model.FxRate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
@@ -14,6 +16,8 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Alpha Vantage FX Rate Provider
@@ -23,26 +27,42 @@ import java.util.Map;
  * Paid tier: Higher limits
  *
  * API Documentation: https://www.alphavantage.co/documentation/
+ *
+ * Requests are fully non-blocking and paced by a token bucket matching the API quota.
+ * A refresh of all pairs runs in the background; fetchRates never waits for it: it starts a
+ * refresh when none is in flight and returns the quotes that have arrived since the previous call.
  */
 @Component
-@ConditionalOnProperty(name = "app.ingestion.provider.type", havingValue = "alpha-vantage")
+@ConditionalOnExpression("'${app.ingestion.provider.type:demo}' == 'alpha-vantage' or '${app.ingestion.provider.mode:single}' == 'aggregate'")
 @Slf4j
 public class AlphaVantageProvider implements FxRateProvider {
 
     private static final String BASE_URL = "https://www.alphavantage.co";
     private static final String FUNCTION = "CURRENCY_EXCHANGE_RATE";
+    private static final ParameterizedTypeReference<Map<String, Object>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
 
     private final WebClient webClient;
     private final String apiKey;
+    private final TokenBucketRateLimiter rateLimiter;
+
+    // Quotes received by the background refresh and not yet handed to the scheduler
+    private final Map<String, FxRate> arrivedQuotes = new ConcurrentHashMap<>();
+    // Completes when the refresh in flight has fetched every pair
+    private CompletableFuture<Void> refresh = CompletableFuture.completedFuture(null);
 
     public AlphaVantageProvider(
             WebClient.Builder webClientBuilder,
-            @Value("${app.ingestion.provider.alpha-vantage.api-key:}") String apiKey
+            @Value("${app.ingestion.provider.alpha-vantage.api-key:}") String apiKey,
+            @Value("${app.ingestion.provider.alpha-vantage.requests-per-minute:5}") int requestsPerMinute,
+            @Value("${app.ingestion.provider.alpha-vantage.burst:1}") int burst
     ) {
         this.apiKey = apiKey;
         this.webClient = webClientBuilder
                 .baseUrl(BASE_URL)
                 .build();
+        this.rateLimiter = new TokenBucketRateLimiter(requestsPerMinute, Duration.ofMinutes(1), burst);
 
         if (isAvailable()) {
             log.info("Alpha Vantage provider initialized successfully");
@@ -52,100 +72,114 @@ public class AlphaVantageProvider implements FxRateProvider {
     }
 
     @Override
-    public List<FxRate> fetchRates(List<String> currencyPairs) throws Exception {
-        log.info("Fetching {} rates from Alpha Vantage", currencyPairs.size());
+    public List<FxRate> fetchRates(List<String> currencyPairs) {
+        // Start a background refresh unless one is still working through the quota
+        boolean refreshing;
+        synchronized (this) {
+            refreshing = !refresh.isDone();
+            if (!refreshing) {
+                refresh = startRefresh(currencyPairs);
+            }
+        }
 
-        List<FxRate> rates = new ArrayList<>();
+        // A caller that has given up gets nothing, so the quotes stay for the next call
+        if (Thread.currentThread().isInterrupted()) {
+            return List.of();
+        }
 
+        // Hand back whatever has arrived since the previous call
+        List<FxRate> rates = new ArrayList<>();
         for (String pair : currencyPairs) {
-            try {
-                // Split currency pair (e.g., "EURUSD" -> "EUR", "USD")
-                String fromCurrency = pair.substring(0, 3);
-                String toCurrency = pair.substring(3, 6);
-
-                // Fetch from Alpha Vantage API
-                FxRate rate = fetchSingleRate(fromCurrency, toCurrency, pair);
-
-                if (rate != null) {
-                    rates.add(rate);
-                }
-
-                // Rate limiting: Alpha Vantage free tier = 5 API calls/minute
-                // Sleep 12 seconds between calls to stay under limit
-                if (currencyPairs.indexOf(pair) < currencyPairs.size() - 1) {
-                    Thread.sleep(12000);
-                }
-
-            } catch (Exception e) {
-                log.error("Error fetching rate for {}: {}", pair, e.getMessage());
+            FxRate rate = arrivedQuotes.get(pair);
+            if (rate != null) {
+                rates.add(rate);
             }
         }
+        // Only the quotes returned are consumed; a newer quote for the pair stays
+        rates.forEach(rate -> arrivedQuotes.remove(rate.getCurrencyPair(), rate));
 
-        log.info("Successfully fetched {}/{} rates from Alpha Vantage",
-                rates.size(), currencyPairs.size());
+        log.info("Returning {}/{} rates from Alpha Vantage (earlier refresh still running: {})",
+                rates.size(), currencyPairs.size(), refreshing);
 
         return rates;
     }
 
+    /**
+     * Fetch all pairs without blocking, each request waiting for a rate limiter permit
+     */
+    private CompletableFuture<Void> startRefresh(List<String> currencyPairs) {
+        log.info("Starting Alpha Vantage refresh for {} pairs", currencyPairs.size());
+
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        Flux.fromIterable(List.copyOf(currencyPairs))
+                .flatMap(pair -> rateLimiter.acquire()
+                        .then(fetchSingleRate(pair.substring(0, 3), pair.substring(3, 6), pair)))
+                .doFinally(signal -> completion.complete(null))
+                .subscribe(
+                        rate -> arrivedQuotes.put(rate.getCurrencyPair(), rate),
+                        error -> log.error("Alpha Vantage refresh failed: {}", error.getMessage())
+                );
+        return completion;
+    }
+
     /**
      * Fetch a single FX rate from Alpha Vantage
      */
-    private FxRate fetchSingleRate(String fromCurrency, String toCurrency, String pair) {
-        try {
-            log.debug("Fetching {}/{} from Alpha Vantage", fromCurrency, toCurrency);
-
-            // API call
-            Map<String, Object> response = webClient
-                    .get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/query")
-                            .queryParam("function", FUNCTION)
-                            .queryParam("from_currency", fromCurrency)
-                            .queryParam("to_currency", toCurrency)
-                            .queryParam("apikey", apiKey)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofSeconds(10))
-                    .block();
-
-            if (response == null || !response.containsKey("Realtime Currency Exchange Rate")) {
-                log.warn("Invalid response from Alpha Vantage for {}", pair);
-                return null;
-            }
+    private Mono<FxRate> fetchSingleRate(String fromCurrency, String toCurrency, String pair) {
+        return webClient
+                .get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/query")
+                        .queryParam("function", FUNCTION)
+                        .queryParam("from_currency", fromCurrency)
+                        .queryParam("to_currency", toCurrency)
+                        .queryParam("apikey", apiKey)
+                        .build())
+                .retrieve()
+                .bodyToMono(RESPONSE_TYPE)
+                .timeout(Duration.ofSeconds(10))
+                .doOnSubscribe(subscription -> log.debug("Fetching {}/{} from Alpha Vantage", fromCurrency, toCurrency))
+                .flatMap(response -> Mono.justOrEmpty(toFxRate(response, fromCurrency, toCurrency, pair)))
+                .onErrorResume(e -> {
+                    log.error("Error fetching {} from Alpha Vantage: {}", pair, e.getMessage());
+                    return Mono.empty();
+                });
+    }
 
-            // Parse response
-            Map<String, String> rateData = (Map<String, String>) response.get("Realtime Currency Exchange Rate");
-
-            BigDecimal exchangeRate = new BigDecimal(rateData.get("5. Exchange Rate"));
-            BigDecimal bidPrice = new BigDecimal(rateData.get("8. Bid Price"));
-            BigDecimal askPrice = new BigDecimal(rateData.get("9. Ask Price"));
-            String lastRefreshed = rateData.get("6. Last Refreshed");
-
-            // Build FxRate object
-            FxRate fxRate = FxRate.builder()
-                    .fromCurrency(fromCurrency)
-                    .toCurrency(toCurrency)
-                    .currencyPair(pair)
-                    .rate(exchangeRate)
-                    .bid(bidPrice)
-                    .ask(askPrice)
-                    .timestamp(Instant.now())
-                    .source("Alpha Vantage")
-                    .confidenceScore(0.95)
-                    .ttlSeconds(5)
-                    .createdAt(Instant.now())
-                    .build();
-
-            log.debug("Successfully fetched {} = {} (bid: {}, ask: {})",
-                    pair, exchangeRate, bidPrice, askPrice);
-
-            return fxRate;
-
-        } catch (Exception e) {
-            log.error("Error fetching {} from Alpha Vantage: {}", pair, e.getMessage());
+    /**
+     * Parse an Alpha Vantage response into an FxRate
+     */
+    private FxRate toFxRate(Map<String, Object> response, String fromCurrency, String toCurrency, String pair) {
+        if (response == null || !(response.get("Realtime Currency Exchange Rate") instanceof Map<?, ?> rateData)) {
+            log.warn("Invalid response from Alpha Vantage for {}", pair);
             return null;
         }
+
+        // Parse response
+
+        BigDecimal exchangeRate = new BigDecimal(String.valueOf(rateData.get("5. Exchange Rate")));
+        BigDecimal bidPrice = new BigDecimal(String.valueOf(rateData.get("8. Bid Price")));
+        BigDecimal askPrice = new BigDecimal(String.valueOf(rateData.get("9. Ask Price")));
+
+        // Build FxRate object
+        FxRate fxRate = FxRate.builder()
+                .fromCurrency(fromCurrency)
+                .toCurrency(toCurrency)
+                .currencyPair(pair)
+                .rate(exchangeRate)
+                .bid(bidPrice)
+                .ask(askPrice)
+                .timestamp(Instant.now())
+                .source("Alpha Vantage")
+                .confidenceScore(0.95)
+                .ttlSeconds(5)
+                .createdAt(Instant.now())
+                .build();
+
+        log.debug("Successfully fetched {} = {} (bid: {}, ask: {})",
+                pair, exchangeRate, bidPrice, askPrice);
+
+        return fxRate;
     }
 
     @Override
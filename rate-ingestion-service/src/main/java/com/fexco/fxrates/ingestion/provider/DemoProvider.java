@@ -146,6 +146,11 @@ public class DemoProvider implements FxRateProvider {
         return true;  // No configuration required
     }
 
+    @Override
+    public boolean isSynthetic() {
+        return true;
+    }
+
     @Override
     public double getConfidenceScore() {
         return 0.85;  // Lower confidence (demo data)
@@ -17,6 +17,8 @@ import java.util.Optional;
  *
  * Configuration via application.yml:
  * app.ingestion.provider.type = alpha-vantage | mock-reuters | demo
+ * app.ingestion.provider.mode = single | aggregate (all real providers are loaded and queried in parallel;
+ * demo and mock providers are never aggregated)
  */
 @Service
 @Slf4j
@@ -75,6 +77,19 @@ public class FxProviderFactory {
         );
     }
 
+    /**
+     * Get every available provider serving market data, for aggregation
+     * (synthetic demo and mock quotes would skew the merged rates)
+     *
+     * @return Available non-synthetic providers (may be empty)
+     */
+    public List<FxRateProvider> getAggregatableProviders() {
+        return availableProviders.stream()
+                .filter(FxRateProvider::isAvailable)
+                .filter(provider -> !provider.isSynthetic())
+                .toList();
+    }
+
     /**
      * Get provider info for monitoring
      */
@@ -35,6 +35,16 @@ public interface FxRateProvider {
      */
     boolean isAvailable();
 
+    /**
+     * Check if the provider generates or approximates quotes instead of serving market data
+     * (synthetic providers are never aggregated with real ones)
+     *
+     * @return true for demo and mock providers
+     */
+    default boolean isSynthetic() {
+        return false;
+    }
+
     /**
      * Get the confidence score for this provider
      * Higher score = more reliable
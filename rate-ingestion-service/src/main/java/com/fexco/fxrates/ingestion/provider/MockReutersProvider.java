@@ -161,6 +161,11 @@ public class MockReutersProvider implements FxRateProvider {
         return true;  // Always available (offline)
     }
 
+    @Override
+    public boolean isSynthetic() {
+        return true;
+    }
+
     @Override
     public double getConfidenceScore() {
         return 0.99;  // High confidence for mock data
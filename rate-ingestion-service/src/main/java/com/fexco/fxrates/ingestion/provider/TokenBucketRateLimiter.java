@@ -0,0 +1,63 @@
+package com.fexco.fxrates.ingestion.provider;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Non-blocking token bucket for pacing calls to rate-limited provider APIs
+ *
+ * Callers reserve a permit up front and are told how long to wait for it, so waiting
+ * is done with a timer (Mono.delay) instead of parking a thread.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param permitsPerPeriod Sustained number of permits per period
+     * @param period           Refill period
+     * @param burst            Maximum number of permits that can be used back to back
+     */
+    public TokenBucketRateLimiter(int permitsPerPeriod, Duration period, int burst) {
+        if (permitsPerPeriod <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerPeriod and burst must be positive");
+        }
+        this.capacity = burst;
+        this.tokensPerNano = (double) permitsPerPeriod / period.toNanos();
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Reserve one permit
+     *
+     * @return How long the caller must wait before using the permit (zero if available now)
+     */
+    public synchronized Duration reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+
+        // Going negative queues the caller behind earlier reservations
+        tokens -= 1;
+        if (tokens >= 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((long) Math.ceil(-tokens / tokensPerNano));
+    }
+
+    /**
+     * Completes once a permit is available, without blocking the subscribing thread
+     */
+    public Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            Duration wait = reserve();
+            return wait.isZero() ? Mono.empty() : Mono.delay(wait).then();
+        });
+    }
+}
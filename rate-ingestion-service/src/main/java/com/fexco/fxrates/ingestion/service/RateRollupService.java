@@ -0,0 +1,182 @@
+package com.fexco.fxrates.ingestion.service;
+
+import com.fexco.fxrates.common.model.CandleAccumulator;
+import com.fexco.fxrates.common.model.CandleInterval;
+import com.fexco.fxrates.common.model.FixedPointQuote;
+import com.fexco.fxrates.common.model.FxRateCandle;
+import com.fexco.fxrates.ingestion.writer.RollupState;
+import com.fexco.fxrates.ingestion.writer.RollupWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes per-pair minute, hour and day rollups of the stored rates
+ *
+ * Exactly one replica runs the job at a time: it holds a lease on the {@link RollupState}
+ * document, and progress is only saved with the document's ETag. Each closed bucket is built
+ * from durable data rather than in-memory state, so replicas, restarts and scale-ups do not
+ * produce partial rollups:
+ * - minute rollups from the per-tick documents of every replica
+ * - hour and day rollups from the finer rollups when those cover the bucket from its start,
+ *   otherwise from the per-tick documents
+ *
+ * Every processed bucket gets a document, with tickCount 0 if it had no ticks, so readers can
+ * tell an empty bucket from one that has not been rolled up.
+ */
+@Service
+@Slf4j
+public class RateRollupService {
+
+    private static final List<CandleInterval> INTERVALS = List.of(
+            CandleInterval.ONE_MINUTE, CandleInterval.ONE_HOUR, CandleInterval.ONE_DAY);
+
+    private final RollupWriter rollupWriter;
+    private final List<String> currencyPairs;
+    private final boolean enabled;
+    private final long closeGraceMillis;
+    private final long leaseMillis;
+    private final int maxBucketsPerRun;
+    private final long maxCatchUpMillis;
+    private final String instanceId;
+
+    public RateRollupService(
+            RollupWriter rollupWriter,
+            @Value("#{'${app.ingestion.currency-pairs}'.split(',')}") List<String> currencyPairs,
+            @Value("${app.ingestion.rollup.enabled:true}") boolean enabled,
+            @Value("${app.ingestion.rollup.close-grace-ms:10000}") long closeGraceMillis,
+            @Value("${app.ingestion.rollup.lease-ms:60000}") long leaseMillis,
+            @Value("${app.ingestion.rollup.max-buckets-per-run:60}") int maxBucketsPerRun,
+            @Value("${app.ingestion.rollup.max-catch-up-hours:24}") int maxCatchUpHours,
+            @Value("${HOSTNAME:}") String hostname
+    ) {
+        this.rollupWriter = rollupWriter;
+        this.currencyPairs = currencyPairs;
+        this.enabled = enabled;
+        this.closeGraceMillis = closeGraceMillis;
+        this.leaseMillis = leaseMillis;
+        this.maxBucketsPerRun = maxBucketsPerRun;
+        this.maxCatchUpMillis = Duration.ofHours(maxCatchUpHours).toMillis();
+        this.instanceId = (hostname.isEmpty() ? "ingestion" : hostname) + "-" + UUID.randomUUID();
+
+        log.info("Rate rollups {} (intervals: {}, close grace: {}ms, instance: {})",
+                enabled ? "enabled" : "disabled",
+                INTERVALS.stream().map(CandleInterval::getCode).toList(),
+                closeGraceMillis, instanceId);
+    }
+
+    /**
+     * Roll up the buckets closed since the last run, if this replica holds the lease
+     */
+    @Scheduled(fixedDelayString = "${app.ingestion.rollup.close-check-interval-ms:10000}")
+    public void rollUp() {
+        if (!enabled || !rollupWriter.isAvailable()) {
+            return;
+        }
+
+        RollupState state = rollupWriter.acquireLease(instanceId, leaseMillis).orElse(null);
+        if (state == null) {
+            return;
+        }
+
+        long closedUntil = System.currentTimeMillis() - closeGraceMillis;
+        try {
+            for (int i = 0; i < INTERVALS.size(); i++) {
+                rollUpInterval(state, i, closedUntil);
+            }
+        } catch (Exception e) {
+            log.error("Error rolling up rates", e);
+        }
+        rollupWriter.saveState(state);
+    }
+
+    /**
+     * Write the closed buckets of one interval from its watermark on, for every pair
+     */
+    private void rollUpInterval(RollupState state, int intervalIndex, long closedUntil) {
+        CandleInterval interval = INTERVALS.get(intervalIndex);
+        String code = interval.getCode();
+        long intervalMillis = interval.getMillis();
+
+        long catchUpFrom = interval.bucketStartMillis(closedUntil - maxCatchUpMillis);
+        Long watermark = state.getWatermarks().get(code);
+        if (watermark == null || watermark < catchUpFrom) {
+            // Nothing rolled up yet, or too far behind: start a new unbroken run
+            watermark = catchUpFrom;
+            state.getWatermarks().put(code, watermark);
+            state.getCoveredSince().put(code, watermark);
+            log.info("Starting {} rollups at {}", code, Instant.ofEpochMilli(watermark));
+        }
+
+        int processed = 0;
+        while (watermark + intervalMillis <= closedUntil && processed < maxBucketsPerRun) {
+            Integer finerIndex = finerSource(state, intervalIndex, watermark);
+            if (finerIndex != null && state.getWatermarks().get(INTERVALS.get(finerIndex).getCode())
+                    < watermark + intervalMillis) {
+                // Finer rollups of this bucket are not written yet
+                break;
+            }
+
+            List<FxRateCandle> rollups = new ArrayList<>(currencyPairs.size());
+            for (String currencyPair : currencyPairs) {
+                rollups.add(buildRollup(currencyPair, interval, watermark,
+                        finerIndex != null ? INTERVALS.get(finerIndex) : null));
+            }
+            if (!rollupWriter.upsertRollups(rollups)) {
+                // Retried from the same watermark on the next run
+                break;
+            }
+
+            watermark += intervalMillis;
+            state.getWatermarks().put(code, watermark);
+            processed++;
+        }
+    }
+
+    /**
+     * Index of the finer interval whose rollups cover a bucket from its start, or null to use ticks
+     */
+    private static Integer finerSource(RollupState state, int intervalIndex, long bucketStart) {
+        if (intervalIndex == 0) {
+            return null;
+        }
+        Long finerCoveredSince = state.getCoveredSince().get(INTERVALS.get(intervalIndex - 1).getCode());
+        return finerCoveredSince != null && finerCoveredSince <= bucketStart ? intervalIndex - 1 : null;
+    }
+
+    /**
+     * Rollup document of one bucket, built from finer rollups or, if null, from ticks
+     */
+    private FxRateCandle buildRollup(String currencyPair, CandleInterval interval, long bucketStart,
+                                     CandleInterval finer) {
+        CandleAccumulator accumulator = new CandleAccumulator(currencyPair, interval, bucketStart);
+        Instant start = Instant.ofEpochMilli(bucketStart);
+
+        if (finer != null) {
+            Instant lastFiner = Instant.ofEpochMilli(bucketStart + interval.getMillis() - finer.getMillis());
+            rollupWriter.findRollups(currencyPair, finer, start, lastFiner)
+                    .forEach(rollup -> accumulator.merge(CandleAccumulator.fromCandle(rollup, interval)));
+        } else {
+            rollupWriter.forEachTick(currencyPair, start, Instant.ofEpochMilli(bucketStart + interval.getMillis()),
+                    rate -> accumulator.add(FixedPointQuote.from(rate)));
+        }
+
+        FxRateCandle rollup = accumulator.isEmpty()
+                ? FxRateCandle.builder()
+                        .currencyPair(currencyPair)
+                        .interval(interval.getCode())
+                        .bucketStart(start)
+                        .tickCount(0L)
+                        .build()
+                : accumulator.toCandle();
+        rollup.setId(FxRateCandle.documentId(currencyPair, interval, start));
+        return rollup;
+    }
+}
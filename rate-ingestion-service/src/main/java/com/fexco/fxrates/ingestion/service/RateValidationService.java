@@ -1,6 +1,10 @@
 package com.fexco.fxrates.ingestion.service;
 
+import com.fexco.fxrates.common.model.FixedPoint;
+import com.fexco.fxrates.common.model.FixedPointQuote;
 import com.fexco.fxrates.common.model.FxRate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -24,8 +28,16 @@ public class RateValidationService {
     @Value("${app.ingestion.validation.max-deviation-percent:5.0}")
     private double maxDeviationPercent;
 
-    // In-memory cache of previous rates for validation
-    private final Map<String, BigDecimal> previousRates = new ConcurrentHashMap<>();
+    // In-memory cache of previous rates for validation (fixed-point, no BigDecimal math per tick)
+    private final Map<String, FixedPointQuote> previousRates = new ConcurrentHashMap<>();
+
+    private final Counter precisionLossCounter;
+
+    public RateValidationService(MeterRegistry meterRegistry) {
+        this.precisionLossCounter = Counter.builder("fx.ingestion.validation.precision-loss")
+                .description("Rates with more decimals than their pair's fixed-point scale (rounded half up)")
+                .register(meterRegistry);
+    }
 
     /**
      * Validate and enrich FX rates
@@ -46,10 +58,19 @@ public class RateValidationService {
                     continue;
                 }
 
+                if (!hasExactPrices(rate)) {
+                    log.debug("Rate for {} has more than {} decimals and is rounded in fixed point: rate={}, bid={}, ask={}",
+                            rate.getCurrencyPair(), FixedPoint.scaleFor(rate.getCurrencyPair()),
+                            rate.getRate(), rate.getBid(), rate.getAsk());
+                    precisionLossCounter.increment();
+                }
+
+                FixedPointQuote quote = rate.toFixedPointQuote();
+
                 // Deviation check
-                if (hasExcessiveDeviation(rate)) {
+                if (hasExcessiveDeviation(quote)) {
                     log.warn("Excessive deviation detected for {}: current={}, previous={}",
-                            rate.getCurrencyPair(), rate.getRate(), previousRates.get(rate.getCurrencyPair()));
+                            rate.getCurrencyPair(), rate.getRate(), previousRates.get(rate.getCurrencyPair()).rateAsBigDecimal());
                     // Still include the rate but with lower confidence
                     rate.setConfidenceScore(0.7);
                 }
@@ -58,7 +79,7 @@ public class RateValidationService {
                 enrichRate(rate);
 
                 // Store for next validation
-                previousRates.put(rate.getCurrencyPair(), rate.getRate());
+                previousRates.put(rate.getCurrencyPair(), quote);
 
                 validatedRates.add(rate);
 
@@ -90,21 +111,27 @@ public class RateValidationService {
         return true;
     }
 
+    /**
+     * Whether rate, bid and ask fit the pair's fixed-point scale without rounding
+     */
+    private boolean hasExactPrices(FxRate rate) {
+        int scale = FixedPoint.scaleFor(rate.getCurrencyPair());
+        return FixedPoint.isExact(rate.getRate(), scale)
+                && FixedPoint.isExact(rate.getBid(), scale)
+                && FixedPoint.isExact(rate.getAsk(), scale);
+    }
+
     /**
      * Check for excessive deviation from previous rate
      */
-    private boolean hasExcessiveDeviation(FxRate rate) {
-        BigDecimal previousRate = previousRates.get(rate.getCurrencyPair());
+    private boolean hasExcessiveDeviation(FixedPointQuote quote) {
+        FixedPointQuote previous = previousRates.get(quote.getCurrencyPair());
 
-        if (previousRate == null) {
+        if (previous == null || previous.getRate() <= 0) {
             return false; // No previous rate to compare
         }
 
-        BigDecimal difference = rate.getRate().subtract(previousRate).abs();
-        BigDecimal percentChange = difference.divide(previousRate, 4, BigDecimal.ROUND_HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
-
-        return percentChange.doubleValue() > maxDeviationPercent;
+        return FixedPoint.percentChange(previous.getRate(), quote.getRate()) > maxDeviationPercent;
     }
 
     /**
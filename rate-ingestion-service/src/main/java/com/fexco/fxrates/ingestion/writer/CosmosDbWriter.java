@@ -1,27 +1,74 @@
 package com.fexco.fxrates.ingestion.writer;
 
 import com.azure.cosmos.CosmosContainer;
+import com.azure.cosmos.models.CosmosBulkItemResponse;
+import com.azure.cosmos.models.CosmosBulkOperationResponse;
+import com.azure.cosmos.models.CosmosBulkOperations;
+import com.azure.cosmos.models.CosmosItemOperation;
+import com.azure.cosmos.models.CosmosItemOperationType;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
 import com.azure.cosmos.models.CosmosItemResponse;
+import com.azure.cosmos.models.PartitionKey;
 import com.fexco.fxrates.common.model.FxRate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for writing FX rates to Azure Cosmos DB
+ *
+ * Every rate is written twice:
+ * - an immutable per-tick document for history
+ * - an upserted "latest" document per pair (id: {currencyPair}_latest) so readers
+ *   can fetch the current rate with a single point read
+ *
+ * In bulk mode (default) all documents of a batch are submitted through the Cosmos
+ * bulk executor, which groups them per partition and writes them concurrently.
  */
 @Service
 @Slf4j
 public class CosmosDbWriter {
 
     private final CosmosContainer container;
+    private final boolean bulkEnabled;
 
-    public CosmosDbWriter(CosmosContainer container) {
+    private final DistributionSummary requestChargeSummary;
+    private final Counter failureCounter;
+    private final Timer batchTimer;
+
+    public CosmosDbWriter(
+            CosmosContainer container,
+            MeterRegistry meterRegistry,
+            @Value("${app.ingestion.cosmos.bulk-enabled:true}") boolean bulkEnabled
+    ) {
         this.container = container;
+        this.bulkEnabled = bulkEnabled;
+
+        this.requestChargeSummary = DistributionSummary.builder("fx.ingestion.cosmos.batch.request-charge")
+                .description("Total RU charge per Cosmos DB write batch")
+                .baseUnit("RU")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("fx.ingestion.cosmos.write.failures")
+                .description("Failed Cosmos DB document writes")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("fx.ingestion.cosmos.batch.latency")
+                .description("Latency of a Cosmos DB write batch")
+                .register(meterRegistry);
+
         if (container != null) {
-            log.info("CosmosDbWriter initialized successfully");
+            log.info("CosmosDbWriter initialized successfully (bulk: {})", bulkEnabled);
         } else {
             log.warn("CosmosDbWriter initialized but Cosmos DB container is null. Writes will be skipped.");
         }
@@ -31,7 +78,7 @@ public class CosmosDbWriter {
      * Save FX rates to Cosmos DB
      *
      * @param rates List of FX rates to save
-     * @return Number of successfully saved rates
+     * @return Number of successfully saved rates (tick documents; latest documents are not counted)
      */
     public int saveRates(List<FxRate> rates) {
         if (container == null) {
@@ -46,57 +93,211 @@ public class CosmosDbWriter {
 
         log.info("Writing {} rates to Cosmos DB", rates.size());
 
-        int successCount = 0;
-        int failureCount = 0;
+        long startTime = System.nanoTime();
+
+        rates.forEach(this::prepareRate);
+        WriteResult result = bulkEnabled ? writeBulk(rates) : writeSequential(rates);
+
+        long durationNanos = System.nanoTime() - startTime;
+        batchTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        requestChargeSummary.record(result.requestCharge);
+        failureCounter.increment(result.failureCount + result.latestFailureCount);
+
+        log.info("Cosmos DB write completed. Success: {}, Failed: {}, Latest failed: {}/{}, Total RU: {}, Latency: {}ms",
+                result.successCount,
+                result.failureCount,
+                result.latestFailureCount,
+                result.latestCount,
+                String.format("%.2f", result.requestCharge),
+                TimeUnit.NANOSECONDS.toMillis(durationNanos));
+
+        return result.successCount;
+    }
+
+    /**
+     * Write all tick and latest documents through the bulk executor
+     */
+    private WriteResult writeBulk(List<FxRate> rates) {
+        List<CosmosItemOperation> operations = new ArrayList<>(rates.size() * 2);
 
         for (FxRate rate : rates) {
-            try {
-                // Set timestamps
-                if (rate.getCreatedAt() == null) {
-                    rate.setCreatedAt(Instant.now());
+            operations.add(CosmosBulkOperations.getCreateItemOperation(
+                    rate, new PartitionKey(rate.getCurrencyPair())));
+        }
+
+        // One latest document per pair, so a batch never races itself on the same id
+        Collection<FxRate> latestRates = newestPerPair(rates).values();
+        for (FxRate latest : latestRates) {
+            operations.add(CosmosBulkOperations.getUpsertItemOperation(
+                    toLatestDocument(latest), new PartitionKey(latest.getCurrencyPair())));
+        }
+
+        WriteResult result = new WriteResult();
+        result.latestCount = latestRates.size();
+        int tickResponses = 0;
+        int latestResponses = 0;
+
+        try {
+            for (CosmosBulkOperationResponse<Object> operationResponse : container.executeBulkOperations(operations)) {
+                CosmosItemOperation operation = operationResponse.getOperation();
+                CosmosBulkItemResponse response = operationResponse.getResponse();
+                boolean isTickWrite = operation.getOperationType() == CosmosItemOperationType.CREATE;
+                boolean success = response != null && response.isSuccessStatusCode();
+
+                if (response != null) {
+                    result.requestCharge += response.getRequestCharge();
                 }
-                rate.setUpdatedAt(Instant.now());
 
-                // Generate ID if not present
-                if (rate.getId() == null) {
-                    rate.setId(generateId(rate));
+                if (isTickWrite) {
+                    tickResponses++;
+                } else {
+                    latestResponses++;
                 }
 
-                // Write to Cosmos DB
-                CosmosItemResponse<FxRate> response = container.createItem(rate);
+                if (success) {
+                    continue;
+                }
 
-                log.debug("Saved rate: {} (RU charge: {})",
-                        rate.getId(),
-                        response.getRequestCharge());
+                log.error("Error saving {} document to Cosmos DB: {} - status: {}",
+                        isTickWrite ? "rate" : "latest",
+                        operation.getId(),
+                        response != null ? response.getStatusCode() : "n/a",
+                        operationResponse.getException());
+                if (isTickWrite) {
+                    result.failureCount++;
+                } else {
+                    result.latestFailureCount++;
+                }
+            }
+        } catch (Exception e) {
+            // Operations without a response are unconfirmed: count them as failed
+            log.error("Bulk write to Cosmos DB failed after {}/{} responses: {}",
+                    tickResponses + latestResponses, operations.size(), e.getMessage(), e);
+            result.failureCount += rates.size() - tickResponses;
+            result.latestFailureCount += result.latestCount - latestResponses;
+        }
 
-                successCount++;
+        result.successCount = rates.size() - result.failureCount;
+        return result;
+    }
+
+    /**
+     * Write documents one at a time (bulk mode disabled)
+     */
+    private WriteResult writeSequential(List<FxRate> rates) {
+        WriteResult result = new WriteResult();
 
+        for (FxRate rate : rates) {
+            CosmosItemResponse<FxRate> response;
+            try {
+                // Write to Cosmos DB
+                response = container.createItem(rate);
+                result.requestCharge += response.getRequestCharge();
+                result.successCount++;
             } catch (Exception e) {
                 log.error("Error saving rate to Cosmos DB: {} - {}",
                         rate.getCurrencyPair(),
                         e.getMessage(),
                         e);
-                failureCount++;
+                result.failureCount++;
+                continue;
             }
+
+            result.latestCount++;
+            try {
+                // Maintain the materialized latest document for point reads
+                CosmosItemResponse<FxRate> latestResponse = container.upsertItem(
+                        toLatestDocument(rate),
+                        new PartitionKey(rate.getCurrencyPair()),
+                        new CosmosItemRequestOptions()
+                );
+                result.requestCharge += latestResponse.getRequestCharge();
+
+                log.debug("Saved rate: {} (RU charge: {}, latest RU charge: {})",
+                        rate.getId(),
+                        response.getRequestCharge(),
+                        latestResponse.getRequestCharge());
+
+            } catch (Exception e) {
+                log.error("Error saving latest document to Cosmos DB: {} - {}",
+                        rate.getCurrencyPair(),
+                        e.getMessage(),
+                        e);
+                result.latestFailureCount++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Set timestamps and ID before writing
+     */
+    private void prepareRate(FxRate rate) {
+        if (rate.getCreatedAt() == null) {
+            rate.setCreatedAt(Instant.now());
         }
+        rate.setUpdatedAt(Instant.now());
 
-        log.info("Cosmos DB write completed. Success: {}, Failed: {}, Total RU: calculated",
-                successCount, failureCount);
+        if (rate.getId() == null) {
+            rate.setId(generateId(rate));
+        }
+    }
 
-        return successCount;
+    /**
+     * Pick the rate with the latest timestamp for each currency pair
+     */
+    private Map<String, FxRate> newestPerPair(List<FxRate> rates) {
+        Map<String, FxRate> newest = new LinkedHashMap<>();
+        for (FxRate rate : rates) {
+            newest.merge(rate.getCurrencyPair(), rate,
+                    (existing, candidate) -> candidate.getTimestamp().isBefore(existing.getTimestamp())
+                            ? existing : candidate);
+        }
+        return newest;
+    }
+
+    /**
+     * Copy a rate into the materialized "latest" document for its currency pair
+     */
+    private FxRate toLatestDocument(FxRate rate) {
+        return FxRate.builder()
+                .id(FxRate.latestDocumentId(rate.getCurrencyPair()))
+                .fromCurrency(rate.getFromCurrency())
+                .toCurrency(rate.getToCurrency())
+                .currencyPair(rate.getCurrencyPair())
+                .rate(rate.getRate())
+                .bid(rate.getBid())
+                .ask(rate.getAsk())
+                .timestamp(rate.getTimestamp())
+                .source(rate.getSource())
+                .confidenceScore(rate.getConfidenceScore())
+                .createdAt(rate.getCreatedAt())
+                .updatedAt(rate.getUpdatedAt())
+                .ttlSeconds(rate.getTtlSeconds())
+                .build();
     }
 
     /**
      * Generate a unique ID for an FX rate
-     * Format: {currencyPair}_{source}_{timestamp}
+     * Format: {currencyPair}_{timestamp}
      *
-     * Example: EURUSD_ExternalFXProvider_1705315800000
+     * Example: EURUSD_1705315800000
      */
     private String generateId(FxRate rate) {
-        return String.format("%s_%s_%d",
-                rate.getCurrencyPair(),
-                rate.getSource(),
-                rate.getTimestamp().toEpochMilli()
-        );
+        return FxRate.tickDocumentId(rate.getCurrencyPair(), rate.getTimestamp().toEpochMilli());
+    }
+
+    /**
+     * Aggregated outcome of a write batch
+     */
+    private static final class WriteResult {
+        // Tick documents (one per rate)
+        private int successCount;
+        private int failureCount;
+        // Latest documents (at most one per pair in bulk mode)
+        private int latestCount;
+        private int latestFailureCount;
+        private double requestCharge;
     }
 }
@@ -0,0 +1,63 @@
+package com.fexco.fxrates.ingestion.writer;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Progress of the rollup job and the lease of the replica running it
+ *
+ * A single document in the rollup container. It is only replaced with its ETag, so a replica
+ * whose lease was taken over cannot write progress anymore.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupState {
+
+    public static final String DOCUMENT_ID = "rollup-state";
+    public static final String PARTITION_KEY = "_rollup-state";
+
+    @Builder.Default
+    private String id = DOCUMENT_ID;
+
+    /**
+     * Partition key value of the state document (rollups are partitioned by currency pair)
+     */
+    @Builder.Default
+    private String currencyPair = PARTITION_KEY;
+
+    /**
+     * Replica holding the lease
+     */
+    private String owner;
+
+    /**
+     * End of the lease, in epoch millis
+     */
+    private Long leaseExpiresAt;
+
+    /**
+     * Per interval code: start of the next bucket to roll up, in epoch millis
+     */
+    @Builder.Default
+    private Map<String, Long> watermarks = new HashMap<>();
+
+    /**
+     * Per interval code: start of the first bucket of the unbroken run of rollups, in epoch millis
+     */
+    @Builder.Default
+    private Map<String, Long> coveredSince = new HashMap<>();
+
+    /**
+     * ETag of the stored document (not stored itself)
+     */
+    @JsonIgnore
+    private String etag;
+}
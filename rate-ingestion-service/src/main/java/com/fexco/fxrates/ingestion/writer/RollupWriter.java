@@ -0,0 +1,257 @@
+package com.fexco.fxrates.ingestion.writer;
+
+import com.azure.cosmos.CosmosContainer;
+import com.azure.cosmos.CosmosException;
+import com.azure.cosmos.models.CosmosBulkItemResponse;
+import com.azure.cosmos.models.CosmosBulkOperationResponse;
+import com.azure.cosmos.models.CosmosBulkOperations;
+import com.azure.cosmos.models.CosmosItemOperation;
+import com.azure.cosmos.models.CosmosItemRequestOptions;
+import com.azure.cosmos.models.CosmosItemResponse;
+import com.azure.cosmos.models.CosmosQueryRequestOptions;
+import com.azure.cosmos.models.PartitionKey;
+import com.azure.cosmos.models.SqlParameter;
+import com.azure.cosmos.models.SqlQuerySpec;
+import com.fexco.fxrates.common.model.CandleInterval;
+import com.fexco.fxrates.common.model.FxRate;
+import com.fexco.fxrates.common.model.FxRateCandle;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Cosmos DB access for the rollup job
+ *
+ * Rollups are built from the stored per-tick documents (so they count every replica's ticks,
+ * like raw-tick reads do) and written as one document per pair, interval and bucket
+ * (id: {currencyPair}_{interval}_{bucketStartMillis}) to the rollup container, which also
+ * holds the job's {@link RollupState}.
+ */
+@Service
+@Slf4j
+public class RollupWriter {
+
+    // Timestamps are stored with fixed millisecond precision, so they compare as strings
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final CosmosContainer ratesContainer;
+    private final CosmosContainer container;
+
+    private final DistributionSummary requestChargeSummary;
+    private final Counter writtenCounter;
+    private final Counter failureCounter;
+
+    public RollupWriter(
+            CosmosContainer ratesContainer,
+            @Qualifier("rollupContainer") CosmosContainer container,
+            MeterRegistry meterRegistry
+    ) {
+        this.ratesContainer = ratesContainer;
+        this.container = container;
+
+        this.requestChargeSummary = DistributionSummary.builder("fx.ingestion.rollup.batch.request-charge")
+                .description("Total RU charge per rollup write batch")
+                .baseUnit("RU")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("fx.ingestion.rollup.writes")
+                .description("Rollup documents upserted")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("fx.ingestion.rollup.write.failures")
+                .description("Failed rollup document upserts")
+                .register(meterRegistry);
+
+        if (container == null || ratesContainer == null) {
+            log.warn("RollupWriter initialized without Cosmos DB containers. Rollups will not be written.");
+        }
+    }
+
+    public boolean isAvailable() {
+        return container != null && ratesContainer != null;
+    }
+
+    /**
+     * Upsert rollup documents through the bulk executor
+     *
+     * @return true if every document was written
+     */
+    public boolean upsertRollups(List<FxRateCandle> rollups) {
+        if (rollups.isEmpty()) {
+            return true;
+        }
+
+        List<CosmosItemOperation> operations = new ArrayList<>(rollups.size());
+        for (FxRateCandle rollup : rollups) {
+            operations.add(CosmosBulkOperations.getUpsertItemOperation(
+                    rollup, new PartitionKey(rollup.getCurrencyPair())));
+        }
+
+        int failed = 0;
+        double requestCharge = 0;
+
+        for (CosmosBulkOperationResponse<Object> operationResponse : container.executeBulkOperations(operations)) {
+            CosmosBulkItemResponse response = operationResponse.getResponse();
+            if (response != null) {
+                requestCharge += response.getRequestCharge();
+            }
+            if (response == null || !response.isSuccessStatusCode()) {
+                log.error("Error upserting rollup {} - status: {}",
+                        operationResponse.getOperation().getId(),
+                        response != null ? response.getStatusCode() : "n/a",
+                        operationResponse.getException());
+                failed++;
+            }
+        }
+
+        requestChargeSummary.record(requestCharge);
+        writtenCounter.increment(rollups.size() - failed);
+        failureCounter.increment(failed);
+
+        log.debug("Upserted {}/{} rollups (RU: {})",
+                rollups.size() - failed, rollups.size(), String.format("%.2f", requestCharge));
+
+        return failed == 0;
+    }
+
+    /**
+     * Stored rollups of a pair with bucket starts in [firstBucket, lastBucket], oldest first
+     */
+    public List<FxRateCandle> findRollups(String currencyPair, CandleInterval interval,
+                                          Instant firstBucket, Instant lastBucket) {
+        String query = "SELECT * FROM c " +
+                "WHERE c.currencyPair = @currencyPair " +
+                "AND c.interval = @interval " +
+                "AND c.bucketStart >= @firstBucket " +
+                "AND c.bucketStart <= @lastBucket " +
+                "ORDER BY c.bucketStart ASC";
+
+        SqlQuerySpec querySpec = new SqlQuerySpec(query)
+                .setParameters(List.of(
+                        new SqlParameter("@currencyPair", currencyPair),
+                        new SqlParameter("@interval", interval.getCode()),
+                        new SqlParameter("@firstBucket", TIMESTAMP_FORMAT.format(firstBucket)),
+                        new SqlParameter("@lastBucket", TIMESTAMP_FORMAT.format(lastBucket))
+                ));
+
+        return container.queryItems(querySpec, partitionOptions(currencyPair), FxRateCandle.class)
+                .stream()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Pass the stored ticks of a pair in [start, end) to a consumer, page by page
+     */
+    public void forEachTick(String currencyPair, Instant start, Instant end, Consumer<FxRate> consumer) {
+        String query = "SELECT * FROM c " +
+                "WHERE c.currencyPair = @currencyPair " +
+                "AND c.timestamp >= @start " +
+                "AND c.timestamp < @end " +
+                "AND c.id != @latestId";
+
+        SqlQuerySpec querySpec = new SqlQuerySpec(query)
+                .setParameters(List.of(
+                        new SqlParameter("@currencyPair", currencyPair),
+                        new SqlParameter("@latestId", FxRate.latestDocumentId(currencyPair)),
+                        new SqlParameter("@start", TIMESTAMP_FORMAT.format(start)),
+                        new SqlParameter("@end", TIMESTAMP_FORMAT.format(end))
+                ));
+
+        ratesContainer.queryItems(querySpec, partitionOptions(currencyPair), FxRate.class)
+                .forEach(consumer);
+    }
+
+    /**
+     * Take or renew the lease on the rollup job
+     *
+     * @return State with its ETag if this replica now holds the lease, empty otherwise
+     */
+    public Optional<RollupState> acquireLease(String owner, long leaseMillis) {
+        long now = System.currentTimeMillis();
+        PartitionKey partitionKey = new PartitionKey(RollupState.PARTITION_KEY);
+
+        try {
+            CosmosItemResponse<RollupState> current = container.readItem(
+                    RollupState.DOCUMENT_ID, partitionKey, RollupState.class);
+            RollupState state = current.getItem();
+            boolean held = state.getOwner() != null && !state.getOwner().equals(owner)
+                    && state.getLeaseExpiresAt() != null && state.getLeaseExpiresAt() > now;
+            if (held) {
+                return Optional.empty();
+            }
+            if (!owner.equals(state.getOwner())) {
+                log.info("Taking over the rollup lease from {}", state.getOwner());
+            }
+            state.setOwner(owner);
+            state.setLeaseExpiresAt(now + leaseMillis);
+            state.setEtag(current.getETag());
+            return saveState(state) ? Optional.of(state) : Optional.empty();
+        } catch (CosmosException e) {
+            if (e.getStatusCode() != 404) {
+                log.warn("Error reading rollup state: {}", e.getMessage());
+                return Optional.empty();
+            }
+        }
+
+        // First run: create the state document (a concurrent creator gets a conflict)
+        RollupState state = RollupState.builder()
+                .owner(owner)
+                .leaseExpiresAt(now + leaseMillis)
+                .watermarks(new HashMap<>())
+                .coveredSince(new HashMap<>())
+                .build();
+        try {
+            CosmosItemResponse<RollupState> created = container.createItem(
+                    state, partitionKey, new CosmosItemRequestOptions());
+            state.setEtag(created.getETag());
+            log.info("Created rollup state, lease held by {}", owner);
+            return Optional.of(state);
+        } catch (CosmosException e) {
+            if (e.getStatusCode() != 409) {
+                log.warn("Error creating rollup state: {}", e.getMessage());
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Replace the state if it has not changed since it was read (updates its ETag)
+     *
+     * @return false if another replica changed it (the lease is lost) or the write failed
+     */
+    public boolean saveState(RollupState state) {
+        try {
+            CosmosItemResponse<RollupState> response = container.replaceItem(
+                    state,
+                    RollupState.DOCUMENT_ID,
+                    new PartitionKey(RollupState.PARTITION_KEY),
+                    new CosmosItemRequestOptions().setIfMatchETag(state.getEtag())
+            );
+            state.setEtag(response.getETag());
+            return true;
+        } catch (CosmosException e) {
+            if (e.getStatusCode() == 412) {
+                log.info("Rollup lease lost to another replica");
+            } else {
+                log.warn("Error saving rollup state: {}", e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    private static CosmosQueryRequestOptions partitionOptions(String currencyPair) {
+        return new CosmosQueryRequestOptions().setPartitionKey(new PartitionKey(currencyPair));
+    }
+}
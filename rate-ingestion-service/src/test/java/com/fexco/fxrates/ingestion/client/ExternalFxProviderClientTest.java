@@ -0,0 +1,106 @@
+package com.fexco.fxrates.ingestion.client;
+
+import com.fexco.fxrates.common.exception.ExternalProviderException;
+import com.fexco.fxrates.common.model.FxRate;
+import com.fexco.fxrates.ingestion.provider.FxProviderFactory;
+import com.fexco.fxrates.ingestion.provider.FxRateProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ExternalFxProviderClientTest {
+
+    private static final List<String> PAIRS = List.of("EURUSD");
+
+    private final FxProviderFactory providerFactory = mock(FxProviderFactory.class);
+    private final FxRateAggregator rateAggregator = mock(FxRateAggregator.class);
+
+    private ExternalFxProviderClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = new ExternalFxProviderClient(providerFactory, rateAggregator);
+        ReflectionTestUtils.setField(client, "providerMode", "aggregate");
+        ReflectionTestUtils.setField(client, "aggregateTimeoutMs", 3000L);
+        ReflectionTestUtils.setField(client, "minProviders", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    void singleMarketDataProviderIsUsedWithoutQuorum() throws Exception {
+        List<FxRate> rates = List.of(rate("Alpha Vantage"));
+        FxRateProvider provider = provider("Alpha Vantage", rates);
+        when(providerFactory.getAggregatableProviders()).thenReturn(List.of(provider));
+
+        assertThat(client.fetchRates(PAIRS)).isEqualTo(rates);
+        verifyNoInteractions(rateAggregator);
+    }
+
+    @Test
+    void noMarketDataProviderFallsBackToTheSingleModeProvider() throws Exception {
+        List<FxRate> rates = List.of(rate("Demo"));
+        FxRateProvider provider = provider("Demo", rates);
+        when(providerFactory.getAggregatableProviders()).thenReturn(List.of());
+        when(providerFactory.getProvider()).thenReturn(provider);
+
+        assertThat(client.fetchRates(PAIRS)).isEqualTo(rates);
+        verifyNoInteractions(rateAggregator);
+    }
+
+    @Test
+    void severalProvidersAreMerged() throws Exception {
+        List<FxRate> first = List.of(rate("First"));
+        List<FxRate> second = List.of(rate("Second"));
+        List<FxRate> merged = List.of(rate("Merged"));
+        when(providerFactory.getAggregatableProviders())
+                .thenReturn(List.of(provider("First", first), provider("Second", second)));
+        when(rateAggregator.aggregate(any())).thenReturn(merged);
+
+        assertThat(client.fetchRates(PAIRS)).isEqualTo(merged);
+        verify(rateAggregator).aggregate(List.of(first, second));
+    }
+
+    @Test
+    void missingQuorumFails() throws Exception {
+        FxRateProvider failing = mock(FxRateProvider.class);
+        when(failing.getProviderName()).thenReturn("Failing");
+        when(failing.fetchRates(PAIRS)).thenThrow(new IllegalStateException("down"));
+        when(providerFactory.getAggregatableProviders())
+                .thenReturn(List.of(provider("First", List.of(rate("First"))), failing));
+
+        assertThatThrownBy(() -> client.fetchRates(PAIRS))
+                .isInstanceOf(ExternalProviderException.class);
+        verifyNoInteractions(rateAggregator);
+    }
+
+    private static FxRateProvider provider(String name, List<FxRate> rates) throws Exception {
+        FxRateProvider provider = mock(FxRateProvider.class);
+        when(provider.getProviderName()).thenReturn(name);
+        when(provider.fetchRates(PAIRS)).thenReturn(rates);
+        return provider;
+    }
+
+    private static FxRate rate(String source) {
+        return FxRate.builder()
+                .currencyPair("EURUSD")
+                .rate(new BigDecimal("1.0851"))
+                .source(source)
+                .build();
+    }
+}
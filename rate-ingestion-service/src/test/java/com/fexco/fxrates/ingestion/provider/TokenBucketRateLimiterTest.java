@@ -0,0 +1,59 @@
+package com.fexco.fxrates.ingestion.provider;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketRateLimiterTest {
+
+    @Test
+    void burstIsAvailableImmediately() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, Duration.ofMinutes(1), 3);
+
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+    }
+
+    @Test
+    void reservationsPastTheBurstQueueAtTheSustainedRate() {
+        // One permit every 12 seconds
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, Duration.ofMinutes(1), 1);
+        limiter.reserve();
+
+        Duration first = limiter.reserve();
+        Duration second = limiter.reserve();
+
+        assertThat(first).isBetween(Duration.ofMillis(11_900), Duration.ofSeconds(12));
+        assertThat(second).isBetween(Duration.ofMillis(23_900), Duration.ofSeconds(24));
+    }
+
+    @Test
+    void acquireCompletesWithoutWaitingWhenAPermitIsAvailable() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, Duration.ofHours(1), 1);
+
+        limiter.acquire().block(Duration.ofSeconds(1));
+
+        assertThat(limiter.reserve()).isGreaterThan(Duration.ofMinutes(59));
+    }
+
+    @Test
+    void acquireReservesOnlyWhenSubscribed() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, Duration.ofHours(1), 1);
+
+        limiter.acquire();
+
+        assertThat(limiter.reserve()).isZero();
+    }
+
+    @Test
+    void nonPositiveSettingsAreRejected() {
+        assertThatThrownBy(() -> new TokenBucketRateLimiter(0, Duration.ofMinutes(1), 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucketRateLimiter(5, Duration.ofMinutes(1), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
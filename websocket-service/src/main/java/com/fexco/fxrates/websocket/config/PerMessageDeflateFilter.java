@@ -0,0 +1,149 @@
+package com.fexco.fxrates.websocket.config;
+
+import com.fexco.fxrates.websocket.protocol.WireProtocol;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Applies the permessage-deflate settings to WebSocket handshakes
+ *
+ * The servlet container negotiates permessage-deflate itself, straight from the request's
+ * Sec-WebSocket-Extensions header, so the offer is adjusted before the handshake runs:
+ * - removed when compression is disabled, or when the client selects the pre-compressed
+ *   {@link WireProtocol#JSON_DEFLATE} subprotocol (its updates are already compressed)
+ * - otherwise server_no_context_takeover / client_no_context_takeover are added as configured;
+ *   the server may always impose them, and without context takeover a session's compressor
+ *   does not carry a sliding window between messages
+ * The container's compression level cannot be set here; app.websocket.compression.level only
+ * applies to the opt-in {@link WireProtocol#JSON_DEFLATE} encoding.
+ */
+@Component
+@Slf4j
+public class PerMessageDeflateFilter extends OncePerRequestFilter {
+
+    private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+    private static final String PROTOCOL_HEADER = "Sec-WebSocket-Protocol";
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+
+    private final boolean enabled;
+    private final boolean serverNoContextTakeover;
+    private final boolean clientNoContextTakeover;
+
+    public PerMessageDeflateFilter(
+            @Value("${app.websocket.compression.enabled:true}") boolean enabled,
+            @Value("${app.websocket.compression.server-no-context-takeover:false}") boolean serverNoContextTakeover,
+            @Value("${app.websocket.compression.client-no-context-takeover:false}") boolean clientNoContextTakeover
+    ) {
+        this.enabled = enabled;
+        this.serverNoContextTakeover = serverNoContextTakeover;
+        this.clientNoContextTakeover = clientNoContextTakeover;
+
+        log.info("permessage-deflate {} (server no context takeover: {}, client no context takeover: {})",
+                enabled ? "enabled" : "disabled", serverNoContextTakeover, clientNoContextTakeover);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"websocket".equalsIgnoreCase(request.getHeader("Upgrade"))
+                || request.getHeader(EXTENSIONS_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean allowDeflate = enabled && selectedProtocol(request) != WireProtocol.JSON_DEFLATE;
+
+        List<String> offers = new ArrayList<>();
+        for (String header : Collections.list(request.getHeaders(EXTENSIONS_HEADER))) {
+            for (String offer : header.split(",")) {
+                String adjusted = adjustOffer(offer.trim(), allowDeflate);
+                if (adjusted != null && !adjusted.isEmpty()) {
+                    offers.add(adjusted);
+                }
+            }
+        }
+
+        chain.doFilter(new ExtensionsRequestWrapper(request, offers.isEmpty() ? null : String.join(", ", offers)), response);
+    }
+
+    /**
+     * Offer with the configured parameters, or null if it must not be negotiated
+     */
+    private String adjustOffer(String offer, boolean allowDeflate) {
+        int separator = offer.indexOf(';');
+        String name = (separator < 0 ? offer : offer.substring(0, separator)).trim();
+        if (!PERMESSAGE_DEFLATE.equalsIgnoreCase(name)) {
+            return offer;
+        }
+        if (!allowDeflate) {
+            return null;
+        }
+
+        StringBuilder adjusted = new StringBuilder(offer);
+        if (serverNoContextTakeover && !offer.contains(SERVER_NO_CONTEXT_TAKEOVER)) {
+            adjusted.append("; ").append(SERVER_NO_CONTEXT_TAKEOVER);
+        }
+        if (clientNoContextTakeover && !offer.contains(CLIENT_NO_CONTEXT_TAKEOVER)) {
+            adjusted.append("; ").append(CLIENT_NO_CONTEXT_TAKEOVER);
+        }
+        return adjusted.toString();
+    }
+
+    /**
+     * Subprotocol the handshake will select: the first one requested by the client that we support
+     */
+    private static WireProtocol selectedProtocol(HttpServletRequest request) {
+        for (String header : Collections.list(request.getHeaders(PROTOCOL_HEADER))) {
+            for (String requested : header.split(",")) {
+                WireProtocol protocol = WireProtocol.fromSubProtocol(requested.trim());
+                if (protocol != null) {
+                    return protocol;
+                }
+            }
+        }
+        return WireProtocol.JSON;
+    }
+
+    /**
+     * Request with a replaced Sec-WebSocket-Extensions header (null removes it)
+     */
+    private static final class ExtensionsRequestWrapper extends HttpServletRequestWrapper {
+
+        private final String extensions;
+
+        private ExtensionsRequestWrapper(HttpServletRequest request, String extensions) {
+            super(request);
+            this.extensions = extensions;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? extensions : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (!EXTENSIONS_HEADER.equalsIgnoreCase(name)) {
+                return super.getHeaders(name);
+            }
+            return extensions != null
+                    ? Collections.enumeration(List.of(extensions))
+                    : Collections.emptyEnumeration();
+        }
+    }
+}
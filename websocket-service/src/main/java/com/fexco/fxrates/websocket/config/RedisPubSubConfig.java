@@ -0,0 +1,39 @@
+package com.fexco.fxrates.websocket.config;
+
+import com.fexco.fxrates.common.constant.CacheConstants;
+import com.fexco.fxrates.websocket.consumer.RedisUpdateSubscriber;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Redis pub/sub configuration for the redis fan-out mode
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.websocket.fanout.mode", havingValue = "redis")
+public class RedisPubSubConfig {
+
+    @Bean
+    public RedisMessageListenerContainer rateUpdatesListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            RedisUpdateSubscriber redisUpdateSubscriber
+    ) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+
+        // A single dispatch thread keeps updates in publish order; broadcasting only enqueues
+        container.setTaskExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-rate-updates");
+            thread.setDaemon(true);
+            return thread;
+        }));
+
+        container.addMessageListener(redisUpdateSubscriber, new ChannelTopic(CacheConstants.FX_RATE_UPDATES_CHANNEL));
+        return container;
+    }
+}
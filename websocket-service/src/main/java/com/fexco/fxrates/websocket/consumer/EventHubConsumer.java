@@ -1,20 +1,33 @@
 package com.fexco.fxrates.websocket.consumer;
 
-import com.azure.messaging.eventhubs.EventProcessorClient;
-import com.azure.messaging.eventhubs.EventProcessorClientBuilder;
-import com.azure.messaging.eventhubs.models.ErrorContext;
-import com.azure.messaging.eventhubs.models.EventContext;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fexco.fxrates.common.event.FxRateUpdatedEvent;
-import com.fexco.fxrates.websocket.service.SubscriptionService;
+import com.azure.messaging.eventhubs.EventHubClientBuilder;
+import com.azure.messaging.eventhubs.EventHubConsumerAsyncClient;
+import com.azure.messaging.eventhubs.models.PartitionEvent;
+import com.fexco.fxrates.common.constant.CacheConstants;
+import com.fexco.fxrates.websocket.service.RateUpdateProcessor;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
 
 /**
  * Event Hub consumer for receiving FX rate updates
+ *
+ * Reads every partition from the latest event, without partition ownership or checkpoints,
+ * so every pod sees every update (pods sharing a consumer group would otherwise split the
+ * partitions and miss updates for their clients).
+ *
+ * Fan-out modes (app.websocket.fanout.mode):
+ * - eventhub: every pod consumes Event Hubs and broadcasts locally; at most 5 pods per
+ *   consumer group, since Event Hubs allows 5 readers per partition per consumer group
+ * - redis: only relay pods (app.websocket.fanout.relay-enabled) consume Event Hubs and
+ *   republish each event on the Redis updates channel, which every pod subscribes to
  */
 @Component
 @Slf4j
@@ -23,84 +36,90 @@ public class EventHubConsumer {
     private final String connectionString;
     private final String eventHubName;
     private final String consumerGroup;
-    private final SubscriptionService subscriptionService;
-    private final ObjectMapper objectMapper;
+    private final boolean redisFanout;
+    private final boolean relayEnabled;
+    private final RateUpdateProcessor rateUpdateProcessor;
+    private final StringRedisTemplate redisTemplate;
 
-    private EventProcessorClient eventProcessorClient;
+    private EventHubConsumerAsyncClient consumerClient;
+    private Disposable subscription;
 
     public EventHubConsumer(
             @Value("${azure.eventhub.connection-string:}") String connectionString,
             @Value("${azure.eventhub.topic:fx-rates-updates}") String eventHubName,
             @Value("${azure.eventhub.consumer-group:websocket-service}") String consumerGroup,
-            SubscriptionService subscriptionService,
-            ObjectMapper objectMapper
+            @Value("${app.websocket.fanout.mode:eventhub}") String fanoutMode,
+            @Value("${app.websocket.fanout.relay-enabled:false}") boolean relayEnabled,
+            RateUpdateProcessor rateUpdateProcessor,
+            StringRedisTemplate redisTemplate
     ) {
         this.connectionString = connectionString;
         this.eventHubName = eventHubName;
         this.consumerGroup = consumerGroup;
-        this.subscriptionService = subscriptionService;
-        this.objectMapper = objectMapper;
+        this.redisFanout = "redis".equalsIgnoreCase(fanoutMode);
+        this.relayEnabled = relayEnabled;
+        this.rateUpdateProcessor = rateUpdateProcessor;
+        this.redisTemplate = redisTemplate;
     }
 
     @PostConstruct
     public void start() {
+        if (redisFanout && !relayEnabled) {
+            log.info("Redis fan-out without relay: updates arrive via Redis pub/sub. Event Hub consumer not started.");
+            return;
+        }
         if (connectionString == null || connectionString.isEmpty()) {
             log.warn("Event Hub connection string not configured. Consumer disabled.");
             return;
         }
 
-        log.info("Starting Event Hub consumer for: {} with consumer group: {}", eventHubName, consumerGroup);
+        log.info("Starting Event Hub consumer for: {} with consumer group: {} ({})",
+                eventHubName, consumerGroup, redisFanout ? "relaying to Redis" : "broadcasting locally");
 
-        // For production, use Blob Storage for checkpointing
-        // For demo, we'll use in-memory checkpointing
-        eventProcessorClient = new EventProcessorClientBuilder()
-                .consumerGroup(consumerGroup)
+        consumerClient = new EventHubClientBuilder()
                 .connectionString(connectionString, eventHubName)
-                .processEvent(this::processEvent)
-                .processError(this::processError)
-                .buildEventProcessorClient();
+                .consumerGroup(consumerGroup)
+                .buildAsyncConsumerClient();
+
+        // receive(false) starts every partition at the latest event
+        subscription = consumerClient.receive(false)
+                .doOnNext(this::processEvent)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.error("Error in Event Hub consumer, reconnecting: {}",
+                                signal.failure().getMessage())))
+                .subscribe();
 
-        eventProcessorClient.start();
         log.info("Event Hub consumer started successfully");
     }
 
     /**
      * Process incoming events
      */
-    private void processEvent(EventContext eventContext) {
-        try {
-            String eventData = eventContext.getEventData().getBodyAsString();
-            log.debug("Received event: {}", eventData);
-
-            // Deserialize event
-            FxRateUpdatedEvent event = objectMapper.readValue(eventData, FxRateUpdatedEvent.class);
-
-            // Broadcast to subscribed WebSocket clients
-            subscriptionService.broadcastRateUpdate(event);
+    private void processEvent(PartitionEvent partitionEvent) {
+        String eventData = partitionEvent.getData().getBodyAsString();
 
-            // Checkpoint the event
-            eventContext.updateCheckpointAsync();
+        if (!redisFanout) {
+            rateUpdateProcessor.process(eventData);
+            return;
+        }
 
+        try {
+            redisTemplate.convertAndSend(CacheConstants.FX_RATE_UPDATES_CHANNEL, eventData);
         } catch (Exception e) {
-            log.error("Error processing event", e);
+            log.error("Error relaying event from partition {} to Redis",
+                    partitionEvent.getPartitionContext().getPartitionId(), e);
         }
     }
 
-    /**
-     * Handle errors
-     */
-    private void processError(ErrorContext errorContext) {
-        log.error("Error in Event Hub consumer. Partition: {}, Error: {}",
-                errorContext.getPartitionContext().getPartitionId(),
-                errorContext.getThrowable().getMessage(),
-                errorContext.getThrowable());
-    }
-
     @PreDestroy
     public void stop() {
-        if (eventProcessorClient != null) {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        if (consumerClient != null) {
             log.info("Stopping Event Hub consumer");
-            eventProcessorClient.stop();
+            consumerClient.close();
         }
     }
 }
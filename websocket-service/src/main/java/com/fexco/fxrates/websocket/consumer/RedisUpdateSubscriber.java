@@ -0,0 +1,28 @@
+package com.fexco.fxrates.websocket.consumer;
+
+import com.fexco.fxrates.websocket.service.RateUpdateProcessor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Receives FX rate updates relayed on the Redis updates channel (redis fan-out mode)
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.fanout.mode", havingValue = "redis")
+@Slf4j
+@RequiredArgsConstructor
+public class RedisUpdateSubscriber implements MessageListener {
+
+    private final RateUpdateProcessor rateUpdateProcessor;
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        rateUpdateProcessor.process(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+}
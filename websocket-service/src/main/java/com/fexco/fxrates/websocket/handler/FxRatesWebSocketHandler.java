@@ -1,40 +1,56 @@
 package com.fexco.fxrates.websocket.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fexco.fxrates.common.model.FxRate;
+import com.fexco.fxrates.websocket.protocol.WireProtocol;
 import com.fexco.fxrates.websocket.service.SubscriptionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * WebSocket handler for FX rate subscriptions
+ *
+ * Clients send JSON text commands. Rate updates use the negotiated subprotocol:
+ * JSON text by default, or compact binary frames (see {@link WireProtocol}).
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class FxRatesWebSocketHandler extends TextWebSocketHandler {
+public class FxRatesWebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
 
     private final SubscriptionService subscriptionService;
     private final ObjectMapper objectMapper;
 
+    @Override
+    public List<String> getSubProtocols() {
+        return WireProtocol.subProtocols();
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        log.info("WebSocket connection established: {}", session.getId());
+        log.info("WebSocket connection established: {} (protocol: {})",
+                session.getId(), WireProtocol.fromAccepted(session.getAcceptedProtocol()));
         subscriptionService.registerSession(session);
 
         // Send welcome message
         Map<String, String> welcome = Map.of(
                 "type", "connected",
                 "message", "Connected to FX Rates WebSocket",
-                "sessionId", session.getId()
+                "sessionId", session.getId(),
+                "protocol", subscriptionService.getProtocol(session).getSubProtocol()
         );
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(welcome)));
+        subscriptionService.sendToSession(session, welcome);
     }
 
     @Override
@@ -58,6 +74,14 @@ public class FxRatesWebSocketHandler extends TextWebSocketHandler {
                     handlePing(session);
                     break;
 
+                case "stats":
+                    handleStats(session);
+                    break;
+
+                case "resync":
+                    handleResync(session, payload);
+                    break;
+
                 default:
                     sendError(session, "Unknown action: " + action);
             }
@@ -88,21 +112,83 @@ public class FxRatesWebSocketHandler extends TextWebSocketHandler {
 
         if (currencyPairsObj instanceof java.util.List) {
             java.util.List<String> currencyPairs = (java.util.List<String>) currencyPairsObj;
-            subscriptionService.subscribe(session, currencyPairs);
 
-            Map<String, Object> response = Map.of(
-                    "type", "subscribed",
-                    "currencyPairs", currencyPairs,
-                    "message", "Successfully subscribed to " + currencyPairs.size() + " currency pairs"
-            );
-            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
+            Long requestedThrottleMs = parseThrottleMs(payload);
+            if (requestedThrottleMs == null) {
+                sendError(session, "Invalid throttle: throttleMs and maxUpdatesPerSecond must be positive numbers");
+                return;
+            }
+
+            // Optional: receive rateSnapshot/rateDelta messages instead of full rateUpdate messages
+            if (payload.get("delta") instanceof Boolean delta) {
+                subscriptionService.setDeltaEncoding(session, delta);
+            }
+
+            // Optional: receive the updates of each tick as one rateUpdates batch frame
+            if (payload.get("batch") instanceof Boolean batch) {
+                subscriptionService.setBatching(session, batch);
+            }
 
-            log.info("Session {} subscribed to: {}", session.getId(), currencyPairs);
+            long throttleMs = subscriptionService.subscribe(session, currencyPairs, requestedThrottleMs);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("type", "subscribed");
+            response.put("currencyPairs", currencyPairs);
+            response.put("throttleMs", throttleMs);
+            response.put("message", "Successfully subscribed to " + currencyPairs.size() + " currency pairs");
+            // Latest known rates, so the client has prices before the next tick
+            // (delta-encoding sessions get them as rateSnapshot messages instead). The session is
+            // already subscribed, so a newer update may be queued ahead of this response: the
+            // per-pair seq lets the client drop snapshot rates older than an update it applied
+            if (!subscriptionService.isDeltaEncoding(session)) {
+                Map<String, FxRate> snapshot = new LinkedHashMap<>();
+                Map<String, Long> snapshotSeq = new LinkedHashMap<>();
+                subscriptionService.getLatestRates(currencyPairs).forEach((pair, latest) -> {
+                    snapshot.put(pair, latest.rate());
+                    snapshotSeq.put(pair, latest.seq());
+                });
+                response.put("snapshot", snapshot);
+                response.put("snapshotSeq", snapshotSeq);
+            }
+            if (subscriptionService.getProtocol(session) == WireProtocol.BINARY) {
+                // Pair ids used in binary rate frames
+                response.put("pairIds", subscriptionService.getPairIds(currencyPairs));
+            }
+            subscriptionService.sendToSession(session, response);
+            subscriptionService.sendSnapshots(session, currencyPairs);
+
+            log.info("Session {} subscribed to: {} (throttle: {}ms)", session.getId(), currencyPairs, throttleMs);
         } else {
             sendError(session, "Invalid currencyPairs format");
         }
     }
 
+    /**
+     * Read the optional throttle of a subscribe request
+     * ("throttleMs": interval between updates, or "maxUpdatesPerSecond": per pair)
+     *
+     * @return Interval in milliseconds (0 if not throttled), or null if invalid
+     */
+    private Long parseThrottleMs(Map<String, Object> payload) {
+        Object throttleMs = payload.get("throttleMs");
+        if (throttleMs != null) {
+            if (!(throttleMs instanceof Number number) || number.longValue() <= 0) {
+                return null;
+            }
+            return number.longValue();
+        }
+
+        Object maxUpdatesPerSecond = payload.get("maxUpdatesPerSecond");
+        if (maxUpdatesPerSecond != null) {
+            if (!(maxUpdatesPerSecond instanceof Number number) || number.doubleValue() <= 0) {
+                return null;
+            }
+            return (long) Math.ceil(1000.0 / number.doubleValue());
+        }
+
+        return 0L;
+    }
+
     /**
      * Handle unsubscribe request
      */
@@ -117,7 +203,7 @@ public class FxRatesWebSocketHandler extends TextWebSocketHandler {
                     "type", "unsubscribed",
                     "currencyPairs", currencyPairs
             );
-            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
+            subscriptionService.sendToSession(session, response);
 
             log.info("Session {} unsubscribed from: {}", session.getId(), currencyPairs);
         } else {
@@ -133,7 +219,31 @@ public class FxRatesWebSocketHandler extends TextWebSocketHandler {
                 "type", "pong",
                 "timestamp", String.valueOf(System.currentTimeMillis())
         );
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(pong)));
+        subscriptionService.sendToSession(session, pong);
+    }
+
+    /**
+     * Handle resync request (client detected a gap or a baseSeq it does not have)
+     */
+    private void handleResync(WebSocketSession session, Map<String, Object> payload) throws Exception {
+        Object currencyPairsObj = payload.get("currencyPairs");
+
+        if (currencyPairsObj instanceof java.util.List) {
+            subscriptionService.sendSnapshots(session, (java.util.List<String>) currencyPairsObj);
+        } else {
+            sendError(session, "Invalid currencyPairs format");
+        }
+    }
+
+    /**
+     * Handle stats request (outbound counters for this session)
+     */
+    private void handleStats(WebSocketSession session) throws Exception {
+        Map<String, Object> stats = Map.of(
+                "type", "stats",
+                "stats", subscriptionService.getSessionStats(session.getId())
+        );
+        subscriptionService.sendToSession(session, stats);
     }
 
     /**
@@ -144,6 +254,6 @@ public class FxRatesWebSocketHandler extends TextWebSocketHandler {
                 "type", "error",
                 "message", error
         );
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(errorMsg)));
+        subscriptionService.sendToSession(session, errorMsg);
     }
 }
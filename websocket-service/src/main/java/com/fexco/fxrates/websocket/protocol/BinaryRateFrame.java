@@ -0,0 +1,54 @@
+package com.fexco.fxrates.websocket.protocol;
+
+import com.fexco.fxrates.common.model.FixedPoint;
+import com.fexco.fxrates.common.model.FixedPointQuote;
+import com.fexco.fxrates.common.model.FxRate;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary rate update frame for the {@link WireProtocol#BINARY} subprotocol
+ *
+ * Layout (big-endian, 36 bytes):
+ * <pre>
+ *   byte    frame type (0x01 = rate update)
+ *   short   pair id (unsigned, mapping sent in the subscribed response)
+ *   byte    price scale
+ *   long    bid, ask, mid   (fixed-point mantissas; all equal to rate when the quote has no bid/ask)
+ *   long    timestamp       (epoch millis)
+ * </pre>
+ * Price = mantissa / 10^scale.
+ */
+public final class BinaryRateFrame {
+
+    private BinaryRateFrame() {
+        // Utility class
+    }
+
+    public static final byte RATE_UPDATE = 0x01;
+
+    public static final int LENGTH = 1 + 2 + 1 + 8 * 4;
+
+    /**
+     * Encode a rate update
+     */
+    public static byte[] encode(int pairId, FxRate rate) {
+        FixedPointQuote quote = FixedPointQuote.from(rate);
+        long mid = quote.getMid();
+        long bid = quote.hasBidAsk() ? quote.getBid() : mid;
+        long ask = quote.hasBidAsk() ? quote.getAsk() : mid;
+        if (mid == FixedPoint.NONE) {
+            throw new IllegalArgumentException("Rate has no price: " + rate.getCurrencyPair());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+        buffer.put(RATE_UPDATE);
+        buffer.putShort((short) pairId);
+        buffer.put((byte) quote.getScale());
+        buffer.putLong(bid);
+        buffer.putLong(ask);
+        buffer.putLong(mid);
+        buffer.putLong(quote.getTimestampMillis());
+        return buffer.array();
+    }
+}
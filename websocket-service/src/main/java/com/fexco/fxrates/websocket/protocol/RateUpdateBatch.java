@@ -0,0 +1,79 @@
+package com.fexco.fxrates.websocket.protocol;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Combines several already-encoded rate updates into a single WebSocket frame
+ *
+ * JSON: {@code {"type":"rateUpdates","updates":[...]}} where each element is one of the
+ * individual messages (rateUpdate, rateSnapshot or rateDelta), copied byte for byte.
+ * Binary: the {@link BinaryRateFrame}s back to back; frames are fixed-length, so a
+ * client splits the message every {@link BinaryRateFrame#LENGTH} bytes.
+ */
+public final class RateUpdateBatch {
+
+    private RateUpdateBatch() {
+        // Utility class
+    }
+
+    private static final byte[] JSON_PREFIX = "{\"type\":\"rateUpdates\",\"updates\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] JSON_SUFFIX = "]}".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Whether two messages can share a batch frame
+     */
+    public static boolean compatible(WebSocketMessage<?> first, WebSocketMessage<?> next) {
+        return (first instanceof TextMessage && next instanceof TextMessage)
+                || (first instanceof BinaryMessage && next instanceof BinaryMessage);
+    }
+
+    /**
+     * Combine compatible messages into one frame (a single message is returned as is)
+     */
+    public static WebSocketMessage<?> combine(List<WebSocketMessage<?>> messages) {
+        if (messages.size() == 1) {
+            return messages.get(0);
+        }
+        return messages.get(0) instanceof BinaryMessage ? combineBinary(messages) : combineText(messages);
+    }
+
+    private static TextMessage combineText(List<WebSocketMessage<?>> messages) {
+        int length = JSON_PREFIX.length + JSON_SUFFIX.length + messages.size() - 1;
+        byte[][] payloads = new byte[messages.size()][];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = ((TextMessage) messages.get(i)).asBytes();
+            length += payloads[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.put(JSON_PREFIX);
+        for (int i = 0; i < payloads.length; i++) {
+            if (i > 0) {
+                buffer.put((byte) ',');
+            }
+            buffer.put(payloads[i]);
+        }
+        buffer.put(JSON_SUFFIX);
+        return new TextMessage(buffer.array());
+    }
+
+    private static BinaryMessage combineBinary(List<WebSocketMessage<?>> messages) {
+        int length = 0;
+        for (WebSocketMessage<?> message : messages) {
+            length += message.getPayloadLength();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (WebSocketMessage<?> message : messages) {
+            // Duplicate so the shared frame's position is left untouched
+            buffer.put(((BinaryMessage) message).getPayload().duplicate());
+        }
+        return new BinaryMessage(buffer.array());
+    }
+}
@@ -0,0 +1,58 @@
+package com.fexco.fxrates.websocket.protocol;
+
+import java.util.List;
+
+/**
+ * Wire formats for server → client rate updates, negotiated via Sec-WebSocket-Protocol
+ *
+ * JSON is the default when the client requests no subprotocol. Control messages
+ * (connected, subscribed, pong, error) are JSON text frames in all cases.
+ * JSON_DEFLATE is an opt-in, application-level encoding (not RFC 7692 permessage-deflate):
+ * the same JSON rate updates, compressed once per broadcast on the server (raw DEFLATE, each
+ * message independent) and sent as binary frames the client inflates itself; updates below
+ * the compression threshold stay plain text frames. Clients only get it by requesting it.
+ */
+public enum WireProtocol {
+
+    JSON("fx-rates.json.v1"),
+    JSON_DEFLATE("fx-rates.json-deflate.v1"),
+    BINARY("fx-rates.binary.v1");
+
+    private final String subProtocol;
+
+    WireProtocol(String subProtocol) {
+        this.subProtocol = subProtocol;
+    }
+
+    public String getSubProtocol() {
+        return subProtocol;
+    }
+
+    /**
+     * Subprotocols offered during the handshake, in order of preference
+     * (the custom deflate encoding last, below plain JSON)
+     */
+    public static List<String> subProtocols() {
+        return List.of(BINARY.subProtocol, JSON.subProtocol, JSON_DEFLATE.subProtocol);
+    }
+
+    /**
+     * Protocol for a subprotocol name, or null if not one of ours
+     */
+    public static WireProtocol fromSubProtocol(String subProtocol) {
+        for (WireProtocol protocol : values()) {
+            if (protocol.subProtocol.equalsIgnoreCase(subProtocol)) {
+                return protocol;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Protocol for the subprotocol accepted during the handshake (JSON if none)
+     */
+    public static WireProtocol fromAccepted(String acceptedProtocol) {
+        WireProtocol protocol = acceptedProtocol != null ? fromSubProtocol(acceptedProtocol) : null;
+        return protocol != null ? protocol : JSON;
+    }
+}
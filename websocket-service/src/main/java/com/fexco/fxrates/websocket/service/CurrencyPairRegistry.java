@@ -0,0 +1,54 @@
+package com.fexco.fxrates.websocket.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interns currency pairs to small int ids, used on the wire by the binary protocol
+ *
+ * Ids are assigned on first use and never reused; they are local to this pod.
+ */
+@Component
+public class CurrencyPairRegistry {
+
+    // Ids must fit the unsigned short used in binary frames
+    public static final int MAX_PAIRS = 0xFFFF;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> pairs = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Id for a currency pair, assigning one on first use
+     *
+     * @throws IllegalStateException if the id space is exhausted
+     */
+    public int idOf(String currencyPair) {
+        return ids.computeIfAbsent(currencyPair, pair -> {
+            int id = nextId.getAndIncrement();
+            if (id >= MAX_PAIRS) {
+                throw new IllegalStateException("Currency pair id space exhausted");
+            }
+            pairs.put(id, pair);
+            return id;
+        });
+    }
+
+    /**
+     * Id of a currency pair, or -1 if it has none yet (does not assign one)
+     */
+    public int find(String currencyPair) {
+        Integer id = ids.get(currencyPair);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Currency pair for an id, or null if unknown
+     */
+    public String pairOf(int id) {
+        return pairs.get(id);
+    }
+}
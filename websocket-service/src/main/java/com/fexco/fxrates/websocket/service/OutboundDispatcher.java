@@ -0,0 +1,215 @@
+package com.fexco.fxrates.websocket.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the writer pool and slow-consumer settings shared by all {@link SessionSender}s
+ *
+ * Each session gets its own bounded queue; writes for a session run on the pool one
+ * at a time, so a slow client only ever delays its own messages. A watchdog closes sessions
+ * whose send has been blocked past the send time limit, and closes run on their own threads,
+ * so neither waits for a writer thread held by a stuck send.
+ */
+@Component
+@Slf4j
+public class OutboundDispatcher {
+
+    private final int queueCapacity;
+    private final SlowConsumerPolicy policy;
+    private final boolean conflationEnabled;
+    private final long sendTimeLimitNanos;
+    private final long batchWindowNanos;
+    private final int batchMaxUpdates;
+    private final ExecutorService writerPool;
+    // Session closes, which may block behind a stuck send
+    private final ExecutorService closePool;
+    // Releases throttled updates and batch windows when they elapse, and runs the send watchdog;
+    // tasks only enqueue, submit or check
+    private final ScheduledExecutorService throttleScheduler;
+
+    private final Set<SessionSender> senders = ConcurrentHashMap.newKeySet();
+
+    private final Counter droppedCounter;
+    private final Counter conflatedCounter;
+    private final Counter disconnectedCounter;
+
+    public OutboundDispatcher(
+            MeterRegistry meterRegistry,
+            @Value("${app.websocket.outbound.queue-capacity:256}") int queueCapacity,
+            @Value("${app.websocket.outbound.slow-consumer-policy:drop-oldest}") String policy,
+            @Value("${app.websocket.outbound.conflation-enabled:true}") boolean conflationEnabled,
+            @Value("${app.websocket.outbound.send-time-limit-ms:5000}") long sendTimeLimitMs,
+            @Value("${app.websocket.outbound.writer-threads:16}") int writerThreads,
+            @Value("${app.websocket.outbound.batch-window-ms:20}") long batchWindowMs,
+            @Value("${app.websocket.outbound.batch-max-updates:100}") int batchMaxUpdates
+    ) {
+        this.queueCapacity = queueCapacity;
+        this.policy = SlowConsumerPolicy.from(policy);
+        this.conflationEnabled = conflationEnabled;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+        this.batchMaxUpdates = Math.max(1, batchMaxUpdates);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writerPool = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ws-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.closePool = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ws-close");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.throttleScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-throttle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sendTimeLimitNanos > 0) {
+            long checkPeriodNanos = Math.max(sendTimeLimitNanos / 4, TimeUnit.MILLISECONDS.toNanos(100));
+            throttleScheduler.scheduleWithFixedDelay(
+                    this::checkSendTimeLimits, checkPeriodNanos, checkPeriodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        this.droppedCounter = Counter.builder("fx.websocket.outbound.dropped")
+                .description("Outbound messages dropped for slow consumers")
+                .register(meterRegistry);
+        this.conflatedCounter = Counter.builder("fx.websocket.outbound.conflated")
+                .description("Queued rate updates replaced by a newer update for the same pair")
+                .register(meterRegistry);
+        this.disconnectedCounter = Counter.builder("fx.websocket.outbound.disconnected")
+                .description("Sessions closed as slow consumers")
+                .register(meterRegistry);
+
+        log.info("Outbound dispatcher initialized (queue capacity: {}, policy: {}, conflation: {}, send time limit: {}ms, writer threads: {}, batch window: {}ms)",
+                queueCapacity, this.policy, conflationEnabled, sendTimeLimitMs, writerThreads, batchWindowMs);
+    }
+
+    /**
+     * Create the sender for a newly connected session
+     */
+    public SessionSender newSender(WebSocketSession session) {
+        SessionSender sender = new SessionSender(session, this);
+        senders.add(sender);
+        return sender;
+    }
+
+    /**
+     * Stop watching a closed sender
+     */
+    void unregister(SessionSender sender) {
+        senders.remove(sender);
+    }
+
+    int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    SlowConsumerPolicy getPolicy() {
+        return policy;
+    }
+
+    boolean isConflationEnabled() {
+        return conflationEnabled;
+    }
+
+    long getBatchWindowNanos() {
+        return batchWindowNanos;
+    }
+
+    int getBatchMaxUpdates() {
+        return batchMaxUpdates;
+    }
+
+    boolean execute(Runnable task) {
+        try {
+            writerPool.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Writer pool rejected task: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    boolean schedule(Runnable task, long delayNanos) {
+        try {
+            throttleScheduler.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Throttle scheduler rejected task: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Close a slow session off the caller's thread
+     */
+    void disconnect(WebSocketSession session, String reason) {
+        disconnectedCounter.increment();
+        log.warn("Disconnecting slow consumer {}: {}", session.getId(), reason);
+        close(session, CloseStatus.SESSION_NOT_RELIABLE.withReason(reason));
+    }
+
+    /**
+     * Close a session off the caller's thread (and off the writer pool)
+     */
+    void close(WebSocketSession session, CloseStatus status) {
+        try {
+            closePool.execute(() -> {
+                try {
+                    session.close(status);
+                } catch (Exception e) {
+                    log.debug("Error closing session {}: {}", session.getId(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Close pool rejected task: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Disconnect sessions whose in-progress send has been blocked longer than the send time limit
+     */
+    private void checkSendTimeLimits() {
+        long now = System.nanoTime();
+        for (SessionSender sender : senders) {
+            if (sender.isSendBlockedSince(now - sendTimeLimitNanos)) {
+                // Closing the session fails the stuck send and releases its writer thread
+                sender.close();
+                disconnect(sender.getSession(), "Send time limit exceeded");
+            }
+        }
+    }
+
+    void recordDropped() {
+        droppedCounter.increment();
+    }
+
+    void recordConflated() {
+        conflatedCounter.increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        throttleScheduler.shutdownNow();
+        writerPool.shutdownNow();
+        closePool.shutdownNow();
+    }
+}
@@ -0,0 +1,115 @@
+package com.fexco.fxrates.websocket.service;
+
+import com.fexco.fxrates.websocket.protocol.WireProtocol;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses broadcast payloads for {@link WireProtocol#JSON_DEFLATE} sessions
+ *
+ * Each payload is compressed once per broadcast and the resulting bytes are sent as a binary
+ * frame to every subscriber, instead of the container deflating the same message once per session.
+ * Messages are compressed independently (raw DEFLATE, no shared window), so clients can
+ * inflate any of them on its own, e.g. with DecompressionStream("deflate-raw"). This is the
+ * application-level encoding of the opt-in subprotocol, not RFC 7692 permessage-deflate, whose
+ * compression level stays the container's.
+ *
+ * Deflaters are pooled rather than bound to threads, so their native memory is released
+ * when the pool is full and on shutdown instead of leaking with dead writer threads.
+ */
+@Component
+@Slf4j
+public class PayloadCompressor {
+
+    private static final int MAX_IDLE_DEFLATERS = 8;
+
+    private final int level;
+    private final int minSizeBytes;
+
+    private final Counter inputBytes;
+    private final Counter outputBytes;
+
+    // Idle deflaters; one is borrowed per compression
+    private final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(MAX_IDLE_DEFLATERS);
+
+    public PayloadCompressor(
+            MeterRegistry meterRegistry,
+            @Value("${app.websocket.compression.level:6}") int level,
+            @Value("${app.websocket.compression.min-size-bytes:128}") int minSizeBytes
+    ) {
+        this.level = level;
+        this.minSizeBytes = minSizeBytes;
+
+        this.inputBytes = Counter.builder("fx.websocket.compression.input.bytes")
+                .description("Bytes of broadcast payloads before shared compression")
+                .register(meterRegistry);
+        this.outputBytes = Counter.builder("fx.websocket.compression.output.bytes")
+                .description("Bytes of broadcast payloads after shared compression")
+                .register(meterRegistry);
+
+        log.info("Payload compressor initialized (level: {}, min size: {} bytes)", level, minSizeBytes);
+    }
+
+    /**
+     * Compressed payload of a text message, or null if it is below the size threshold
+     * or does not get smaller (send the text message as is)
+     */
+    public byte[] compress(TextMessage message) {
+        byte[] payload = message.asBytes();
+        if (payload.length < minSizeBytes) {
+            return null;
+        }
+
+        Deflater deflater = borrowDeflater();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 2);
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                compressed.write(buffer, 0, length);
+            }
+        } finally {
+            releaseDeflater(deflater);
+        }
+
+        if (compressed.size() >= payload.length) {
+            return null;
+        }
+        inputBytes.increment(payload.length);
+        outputBytes.increment(compressed.size());
+        return compressed.toByteArray();
+    }
+
+    private Deflater borrowDeflater() {
+        Deflater deflater = deflaters.poll();
+        return deflater != null ? deflater : new Deflater(level, true);
+    }
+
+    private void releaseDeflater(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
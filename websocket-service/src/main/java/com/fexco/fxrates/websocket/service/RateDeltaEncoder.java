@@ -0,0 +1,262 @@
+package com.fexco.fxrates.websocket.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fexco.fxrates.common.event.FxRateUpdatedEvent;
+import com.fexco.fxrates.common.model.FixedPoint;
+import com.fexco.fxrates.common.model.FixedPointQuote;
+import com.fexco.fxrates.common.model.FxRate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the update stream of each currency pair and encodes snapshot/delta messages
+ *
+ * Every update gets a per-pair sequence number. A snapshot (full rate) is emitted for the
+ * first update, when a non-price field changes, and at periodic resync points; other updates
+ * become deltas carrying only the price fields that differ from the last snapshot (baseSeq).
+ * Because deltas are relative to the snapshot rather than the previous update, a client that
+ * skipped updates (conflation, throttling) can still apply the latest delta.
+ *
+ * Also computes the change of the mid price against the previous update, and is the source
+ * of the latest rate per pair sent on subscribe. Events are not modified.
+ */
+@Component
+@Slf4j
+public class RateDeltaEncoder {
+
+    // Event ids remembered per pair to drop the copies republished by each relay pod
+    private static final int RECENT_EVENT_IDS = 64;
+
+    private final ObjectMapper objectMapper;
+    private final long resyncIntervalNanos;
+    private final int resyncEveryUpdates;
+
+    private final Map<String, PairStream> streams = new ConcurrentHashMap<>();
+
+    public RateDeltaEncoder(
+            ObjectMapper objectMapper,
+            @Value("${app.websocket.delta.resync-interval-ms:30000}") long resyncIntervalMs,
+            @Value("${app.websocket.delta.resync-every-updates:100}") int resyncEveryUpdates
+    ) {
+        this.objectMapper = objectMapper;
+        this.resyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(resyncIntervalMs);
+        this.resyncEveryUpdates = resyncEveryUpdates;
+    }
+
+    /**
+     * Result of encoding one update
+     *
+     * @param seq              Sequence number of the update for its pair
+     * @param snapshot         Whether this update is a resync point
+     * @param snapshotMessage  Latest snapshot for the pair (this update if snapshot is true)
+     * @param deltaMessage     Delta against the snapshot, or null if this update is a snapshot
+     * @param changePercentage Change of the mid price against the previous update, or null
+     */
+    public record EncodedUpdate(long seq, boolean snapshot, TextMessage snapshotMessage, TextMessage deltaMessage,
+                                Double changePercentage) {
+    }
+
+    /**
+     * Assign the next sequence number to an update, encode it and pass it to the publisher
+     *
+     * The publisher runs holding the pair's lock, so the updates of a pair are handed on
+     * (e.g. queued for sessions) in sequence order. Updates older than the last one seen
+     * for the pair, and repeated event ids, are not published.
+     */
+    public void encode(FxRateUpdatedEvent event, Consumer<EncodedUpdate> publisher) throws JsonProcessingException {
+        FxRate rate = event.getFxRate();
+        PairStream stream = streams.computeIfAbsent(rate.getCurrencyPair(), PairStream::new);
+        stream.next(event, publisher);
+    }
+
+    /**
+     * Messages that bring a client up to date on a pair: the latest snapshot followed
+     * by the latest delta against it, if any
+     */
+    public List<TextMessage> currentMessages(String currencyPair) {
+        PairStream stream = streams.get(currencyPair);
+        return stream != null ? stream.currentMessages() : List.of();
+    }
+
+    /**
+     * Latest rate of each pair with its sequence number, in the given order;
+     * pairs without an update yet are omitted
+     */
+    public Map<String, LatestRate> latestRates(Collection<String> currencyPairs) {
+        Map<String, LatestRate> rates = new LinkedHashMap<>();
+        for (String pair : currencyPairs) {
+            PairStream stream = streams.get(pair);
+            LatestRate latest = stream != null ? stream.latest() : null;
+            if (latest != null) {
+                rates.put(pair, latest);
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Latest rate of a pair and the sequence number of the update that carried it
+     */
+    public record LatestRate(FxRate rate, long seq) {
+    }
+
+    private final class PairStream {
+
+        private final String currencyPair;
+
+        private long seq;
+        private FxRate lastRate;
+
+        private final Map<String, Boolean> recentEventIds = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > RECENT_EVENT_IDS;
+            }
+        };
+
+        private FxRate baseRate;
+        private long baseSeq;
+        private long baseNanos;
+        private TextMessage baseMessage;
+        private TextMessage lastDeltaMessage;
+
+        private PairStream(String currencyPair) {
+            this.currencyPair = currencyPair;
+        }
+
+        synchronized void next(FxRateUpdatedEvent event, Consumer<EncodedUpdate> publisher)
+                throws JsonProcessingException {
+            FxRate rate = event.getFxRate();
+
+            // Each relay pod republishes every event, so the same event can arrive more than once
+            if (event.getEventId() != null && recentEventIds.put(event.getEventId(), Boolean.TRUE) != null) {
+                log.debug("Duplicate update {} for {} dropped", event.getEventId(), currencyPair);
+                return;
+            }
+
+            // Events for a pair may arrive out of order from several partitions; distinct ticks
+            // sharing the last timestamp are still delivered
+            if (lastRate != null && rate.getTimestamp() != null && lastRate.getTimestamp() != null
+                    && rate.getTimestamp().isBefore(lastRate.getTimestamp())) {
+                log.debug("Stale update for {} dropped", currencyPair);
+                return;
+            }
+
+            Double changePercentage = lastRate != null ? changePercentage(lastRate, rate) : null;
+            lastRate = rate;
+            seq++;
+
+            long now = System.nanoTime();
+            boolean snapshot = baseRate == null
+                    || !sameStaticFields(baseRate, rate)
+                    || seq - baseSeq >= resyncEveryUpdates
+                    || now - baseNanos >= resyncIntervalNanos;
+
+            if (snapshot) {
+                baseRate = rate;
+                baseSeq = seq;
+                baseNanos = now;
+                baseMessage = snapshotMessage(rate, changePercentage);
+                lastDeltaMessage = null;
+                publisher.accept(new EncodedUpdate(seq, true, baseMessage, null, changePercentage));
+                return;
+            }
+
+            lastDeltaMessage = deltaMessage(rate, changePercentage);
+            publisher.accept(new EncodedUpdate(seq, false, baseMessage, lastDeltaMessage, changePercentage));
+        }
+
+        synchronized LatestRate latest() {
+            return lastRate != null ? new LatestRate(lastRate, seq) : null;
+        }
+
+        synchronized List<TextMessage> currentMessages() {
+            List<TextMessage> messages = new ArrayList<>(2);
+            if (baseMessage != null) {
+                messages.add(baseMessage);
+            }
+            if (lastDeltaMessage != null) {
+                messages.add(lastDeltaMessage);
+            }
+            return messages;
+        }
+
+        private TextMessage snapshotMessage(FxRate rate, Double changePercentage) throws JsonProcessingException {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("type", "rateSnapshot");
+            payload.put("pair", currencyPair);
+            payload.put("seq", seq);
+            payload.put("rate", rate);
+            if (changePercentage != null) {
+                payload.put("chg", changePercentage);
+            }
+            return new TextMessage(objectMapper.writeValueAsBytes(payload));
+        }
+
+        /**
+         * Only the price fields that differ from the snapshot; absent fields equal the snapshot
+         */
+        private TextMessage deltaMessage(FxRate rate, Double changePercentage) throws JsonProcessingException {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("type", "rateDelta");
+            payload.put("pair", currencyPair);
+            payload.put("seq", seq);
+            payload.put("baseSeq", baseSeq);
+            putIfChanged(payload, "rate", baseRate.getRate(), rate.getRate());
+            putIfChanged(payload, "bid", baseRate.getBid(), rate.getBid());
+            putIfChanged(payload, "ask", baseRate.getAsk(), rate.getAsk());
+            if (rate.getTimestamp() != null && !rate.getTimestamp().equals(baseRate.getTimestamp())) {
+                payload.put("ts", rate.getTimestamp().toEpochMilli());
+            }
+            if (changePercentage != null) {
+                payload.put("chg", changePercentage);
+            }
+            return new TextMessage(objectMapper.writeValueAsBytes(payload));
+        }
+    }
+
+    private static void putIfChanged(Map<String, Object> payload, String field, BigDecimal base, BigDecimal value) {
+        if (value != null && (base == null || base.compareTo(value) != 0)) {
+            payload.put(field, value);
+        }
+    }
+
+    /**
+     * Fields a delta does not carry; a change forces a snapshot
+     */
+    private static boolean sameStaticFields(FxRate base, FxRate rate) {
+        return Objects.equals(base.getSource(), rate.getSource())
+                && Objects.equals(base.getConfidenceScore(), rate.getConfidenceScore())
+                && Objects.equals(base.getFromCurrency(), rate.getFromCurrency())
+                && Objects.equals(base.getToCurrency(), rate.getToCurrency())
+                && (base.getRate() == null) == (rate.getRate() == null)
+                && (base.getBid() == null) == (rate.getBid() == null)
+                && (base.getAsk() == null) == (rate.getAsk() == null);
+    }
+
+    /**
+     * Signed change of the mid price in percent
+     */
+    private static Double changePercentage(FxRate previous, FxRate current) {
+        long previousMid = FixedPointQuote.from(previous).getMid();
+        long currentMid = FixedPointQuote.from(current).getMid();
+        if (previousMid == FixedPoint.NONE || currentMid == FixedPoint.NONE || previousMid == 0) {
+            return null;
+        }
+        return (currentMid - previousMid) * 100.0 / previousMid;
+    }
+}
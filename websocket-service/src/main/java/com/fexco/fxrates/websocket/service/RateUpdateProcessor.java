@@ -0,0 +1,43 @@
+package com.fexco.fxrates.websocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fexco.fxrates.common.event.FxRateUpdatedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies an incoming FX rate update event to this pod by broadcasting it
+ *
+ * Entry point for both update sources (Event Hubs directly, or the Redis pub/sub relay).
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RateUpdateProcessor {
+
+    private final ObjectMapper objectMapper;
+    private final SubscriptionService subscriptionService;
+
+    /**
+     * Process a serialized FxRateUpdatedEvent
+     */
+    public void process(String eventJson) {
+        try {
+            log.debug("Received event: {}", eventJson);
+
+            // Deserialize event
+            FxRateUpdatedEvent event = objectMapper.readValue(eventJson, FxRateUpdatedEvent.class);
+            if (event.getFxRate() == null) {
+                log.warn("Ignoring event {} without rate", event.getEventId());
+                return;
+            }
+
+            // Broadcast to subscribed WebSocket clients
+            subscriptionService.broadcastRateUpdate(event);
+
+        } catch (Exception e) {
+            log.error("Error processing event", e);
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package com.fexco.fxrates.websocket.service;
+
+import com.fexco.fxrates.websocket.protocol.RateUpdateBatch;
+import com.fexco.fxrates.websocket.protocol.WireProtocol;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbound side of a single WebSocket session
+ *
+ * Any thread may enqueue; a single drain task at a time writes to the session on the
+ * dispatcher's writer pool, so WebSocketSession.sendMessage is never called concurrently.
+ *
+ * Rate updates are conflated per pair (latest value wins): while an update for a pair is
+ * still queued, a newer one replaces it in place, so a slow session holds at most one
+ * pending update per subscribed pair and always receives the freshest price.
+ * Pairs subscribed with a throttle interval release at most one (conflated) update per interval.
+ * With batching on, rate updates wait for the batch window and consecutive queued updates
+ * are written as one frame (see {@link RateUpdateBatch}).
+ * When the bounded queue is still full the dispatcher's slow-consumer policy applies, and
+ * the dispatcher's watchdog closes the session when a send blocks for longer than the send
+ * time limit.
+ */
+@Slf4j
+public class SessionSender {
+
+    // Frames written per drain task before yielding the writer thread to other sessions
+    private static final int MAX_MESSAGES_PER_DRAIN = 64;
+
+    private final WebSocketSession session;
+    private final OutboundDispatcher dispatcher;
+    private final WireProtocol protocol;
+
+    private final Deque<OutboundMessage> queue = new ArrayDeque<>();
+    // Queued rate updates by currency pair, for in-place conflation
+    private final Map<String, OutboundMessage> queuedUpdates = new HashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    // Pair ids this session is subscribed to (maintained by SubscriptionRegistry)
+    private final Set<Integer> subscribedPairIds = ConcurrentHashMap.newKeySet();
+
+    // Per-pair throttles for pairs subscribed with an update interval
+    private final Map<String, PairThrottle> throttles = new ConcurrentHashMap<>();
+
+    // Whether this session receives rateSnapshot/rateDelta messages instead of full rateUpdate messages
+    private volatile boolean deltaEncoding;
+
+    // Whether queued rate updates are combined into rateUpdates batch frames
+    private volatile boolean batching;
+
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder conflatedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+
+    // System.nanoTime() when the in-progress send started, 0 when idle
+    private volatile long sendStartedNanos;
+    private volatile boolean closed;
+
+    SessionSender(WebSocketSession session, OutboundDispatcher dispatcher) {
+        this.session = session;
+        this.dispatcher = dispatcher;
+        this.protocol = WireProtocol.fromAccepted(session.getAcceptedProtocol());
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    /**
+     * Wire format negotiated for rate updates
+     */
+    public WireProtocol getProtocol() {
+        return protocol;
+    }
+
+    public boolean isOpen() {
+        return !closed && session.isOpen();
+    }
+
+    /**
+     * Whether {@link #close()} has been called
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    Set<Integer> getSubscribedPairIds() {
+        return subscribedPairIds;
+    }
+
+    /**
+     * Queue a control message (welcome, subscribed, pong, error)
+     */
+    public void send(WebSocketMessage<?> message) {
+        enqueue(null, message, false);
+    }
+
+    /**
+     * Queue a rate update for a currency pair; updates carry the pair so they can be conflated
+     */
+    public void send(String currencyPair, WebSocketMessage<?> message) {
+        PairThrottle throttle = throttles.get(currencyPair);
+        if (throttle != null) {
+            throttle.offer(message);
+        } else {
+            enqueue(currencyPair, message, true);
+        }
+    }
+
+    /**
+     * Queue a full snapshot for a pair
+     *
+     * Snapshots are never conflated or throttled; updates sent afterwards queue behind
+     * the snapshot instead of replacing an update queued before it.
+     */
+    public void sendSnapshot(String currencyPair, WebSocketMessage<?> message) {
+        synchronized (queue) {
+            queuedUpdates.remove(currencyPair);
+        }
+        enqueue(null, message, true);
+    }
+
+    /**
+     * Deliver at most one update per interval for a pair (0 removes the throttle)
+     */
+    public void setThrottle(String currencyPair, long intervalMs) {
+        if (intervalMs > 0) {
+            throttles.put(currencyPair, new PairThrottle(currencyPair, TimeUnit.MILLISECONDS.toNanos(intervalMs)));
+        } else {
+            throttles.remove(currencyPair);
+        }
+    }
+
+    /**
+     * Throttle interval for a pair in milliseconds, or 0 if unthrottled
+     */
+    public long getThrottleMs(String currencyPair) {
+        PairThrottle throttle = throttles.get(currencyPair);
+        return throttle != null ? TimeUnit.NANOSECONDS.toMillis(throttle.intervalNanos) : 0;
+    }
+
+    public boolean isDeltaEncoding() {
+        return deltaEncoding;
+    }
+
+    public void setDeltaEncoding(boolean deltaEncoding) {
+        this.deltaEncoding = deltaEncoding;
+    }
+
+    public boolean isBatching() {
+        return batching;
+    }
+
+    public void setBatching(boolean batching) {
+        this.batching = batching;
+    }
+
+    /**
+     * Messages written to the session (each update in a batch frame counts)
+     */
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    /**
+     * Rate updates replaced by a newer update for the same pair before being sent
+     */
+    public long getConflatedCount() {
+        return conflatedCount.sum();
+    }
+
+    /**
+     * Messages discarded by the slow-consumer policy
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Messages currently waiting to be written
+     */
+    public int getQueuedCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Whether a send started at or before the given System.nanoTime() is still in progress
+     */
+    boolean isSendBlockedSince(long nanos) {
+        long startedNanos = sendStartedNanos;
+        return !closed && startedNanos != 0 && startedNanos - nanos <= 0;
+    }
+
+    /**
+     * Stop sending and discard anything still queued
+     */
+    public void close() {
+        closed = true;
+        dispatcher.unregister(this);
+        throttles.clear();
+        synchronized (queue) {
+            queue.clear();
+            queuedUpdates.clear();
+        }
+    }
+
+    /**
+     * @param currencyPair Conflation key, or null if the message must not be conflated
+     * @param update       Whether the message is a rate update (may be batched)
+     */
+    private void enqueue(String currencyPair, WebSocketMessage<?> message, boolean update) {
+        if (closed) {
+            return;
+        }
+
+        boolean accepted;
+        synchronized (queue) {
+            OutboundMessage queued = currencyPair != null && dispatcher.isConflationEnabled()
+                    ? queuedUpdates.get(currencyPair)
+                    : null;
+            if (queued != null) {
+                // Latest value wins; the update keeps its place in the queue
+                queued.message = message;
+                conflatedCount.increment();
+                dispatcher.recordConflated();
+                return;
+            }
+
+            OutboundMessage outbound = new OutboundMessage(currencyPair, message, update);
+            if (queue.size() < dispatcher.getQueueCapacity()) {
+                add(outbound);
+                accepted = true;
+            } else {
+                accepted = onQueueFull(outbound);
+            }
+        }
+
+        if (accepted) {
+            if (update && batching) {
+                scheduleBatchDrain();
+            } else {
+                scheduleDrain();
+            }
+        }
+    }
+
+    /**
+     * Apply the slow-consumer policy (called holding the queue lock)
+     *
+     * @return true if the message was queued
+     */
+    private boolean onQueueFull(OutboundMessage message) {
+        switch (dispatcher.getPolicy()) {
+            case DROP_OLDEST:
+                // Make room by dropping the oldest queued update
+                if (message.currencyPair != null && removeOldestUpdate()) {
+                    recordDropped();
+                    add(message);
+                    return true;
+                }
+                recordDropped();
+                return false;
+
+            case DISCONNECT:
+                closed = true;
+                queue.clear();
+                queuedUpdates.clear();
+                dispatcher.disconnect(session, "Outbound queue full");
+                return false;
+
+            case DROP:
+            default:
+                recordDropped();
+                return false;
+        }
+    }
+
+    private void add(OutboundMessage message) {
+        queue.addLast(message);
+        if (message.currencyPair != null) {
+            queuedUpdates.put(message.currencyPair, message);
+        }
+    }
+
+    private OutboundMessage poll() {
+        OutboundMessage message = queue.pollFirst();
+        if (message != null && message.currencyPair != null) {
+            queuedUpdates.remove(message.currencyPair, message);
+        }
+        return message;
+    }
+
+    private boolean removeOldestUpdate() {
+        Iterator<OutboundMessage> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            OutboundMessage queued = iterator.next();
+            if (queued.currencyPair != null) {
+                iterator.remove();
+                queuedUpdates.remove(queued.currencyPair, queued);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordDropped() {
+        droppedCount.increment();
+        dispatcher.recordDropped();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            startDrain();
+        }
+    }
+
+    /**
+     * Start the drain once the batch window has elapsed, so the updates of one tick
+     * go out together
+     */
+    private void scheduleBatchDrain() {
+        long windowNanos = dispatcher.getBatchWindowNanos();
+        if (windowNanos <= 0) {
+            scheduleDrain();
+        } else if (draining.compareAndSet(false, true) && !dispatcher.schedule(this::startDrain, windowNanos)) {
+            draining.set(false);
+        }
+    }
+
+    private void startDrain() {
+        if (!dispatcher.execute(this::drain)) {
+            draining.set(false);
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < MAX_MESSAGES_PER_DRAIN && !closed; i++) {
+                List<WebSocketMessage<?>> batch;
+                synchronized (queue) {
+                    batch = pollBatch();
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                WebSocketMessage<?> next = RateUpdateBatch.combine(batch);
+
+                sendStartedNanos = System.nanoTime();
+                try {
+                    session.sendMessage(next);
+                    sentCount.add(batch.size());
+                } catch (Exception e) {
+                    log.warn("Failed to send message to session {}: {}", session.getId(), e.getMessage());
+                    close();
+                    dispatcher.close(session, CloseStatus.SERVER_ERROR);
+                } finally {
+                    sendStartedNanos = 0;
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+
+        // Pick up messages queued while this task was finishing, or left over after yielding
+        if (!closed && hasQueued()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Next message to write, plus the rate updates queued directly behind it when batching
+     * (called holding the queue lock)
+     */
+    private List<WebSocketMessage<?>> pollBatch() {
+        OutboundMessage first = poll();
+        if (first == null) {
+            return List.of();
+        }
+        // Pre-compressed payloads are independent DEFLATE streams and cannot be concatenated
+        if (!batching || !first.update || protocol == WireProtocol.JSON_DEFLATE) {
+            return List.of(first.message);
+        }
+
+        List<WebSocketMessage<?>> batch = new ArrayList<>();
+        batch.add(first.message);
+        int maxUpdates = dispatcher.getBatchMaxUpdates();
+        while (batch.size() < maxUpdates) {
+            // Stop at the first control message so ordering is preserved
+            OutboundMessage next = queue.peekFirst();
+            if (next == null || !next.update || !RateUpdateBatch.compatible(first.message, next.message)) {
+                break;
+            }
+            batch.add(poll().message);
+        }
+        return batch;
+    }
+
+    private boolean hasQueued() {
+        synchronized (queue) {
+            return !queue.isEmpty();
+        }
+    }
+
+    /**
+     * Holds back updates for one pair so that at most one is queued per interval
+     *
+     * Updates arriving inside the interval replace each other (latest value wins);
+     * the last one is queued when the interval elapses.
+     */
+    private final class PairThrottle {
+
+        private final String currencyPair;
+        private final long intervalNanos;
+
+        private long nextReleaseNanos = System.nanoTime();
+        private WebSocketMessage<?> pending;
+        private boolean releaseScheduled;
+
+        private PairThrottle(String currencyPair, long intervalNanos) {
+            this.currencyPair = currencyPair;
+            this.intervalNanos = intervalNanos;
+        }
+
+        synchronized void offer(WebSocketMessage<?> message) {
+            long now = System.nanoTime();
+            if (pending == null && now - nextReleaseNanos >= 0) {
+                nextReleaseNanos = now + intervalNanos;
+                enqueue(currencyPair, message, true);
+                return;
+            }
+
+            if (pending != null) {
+                conflatedCount.increment();
+                dispatcher.recordConflated();
+            }
+            pending = message;
+
+            if (!releaseScheduled) {
+                releaseScheduled = dispatcher.schedule(this::release, Math.max(0, nextReleaseNanos - now));
+            }
+        }
+
+        synchronized void release() {
+            releaseScheduled = false;
+            WebSocketMessage<?> message = pending;
+            pending = null;
+
+            // Skip if the session closed or the pair was unsubscribed / re-throttled meanwhile
+            if (message == null || closed || throttles.get(currencyPair) != this) {
+                return;
+            }
+            nextReleaseNanos = System.nanoTime() + intervalNanos;
+            enqueue(currencyPair, message, true);
+        }
+    }
+
+    /**
+     * Queue entry; the message of a rate update is replaced while it waits (guarded by the queue lock)
+     */
+    private static final class OutboundMessage {
+
+        private final String currencyPair;
+        private final boolean update;
+        private WebSocketMessage<?> message;
+
+        private OutboundMessage(String currencyPair, WebSocketMessage<?> message, boolean update) {
+            this.currencyPair = currencyPair;
+            this.message = message;
+            this.update = update;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.fexco.fxrates.websocket.service;
+
+/**
+ * What to do when a session's outbound queue is full
+ */
+public enum SlowConsumerPolicy {
+
+    /**
+     * Drop the new message
+     */
+    DROP,
+
+    /**
+     * Drop the oldest queued rate update to make room for the new one
+     * (per-pair conflation happens before the queue fills, whatever the policy)
+     */
+    DROP_OLDEST,
+
+    /**
+     * Close the session so the client reconnects and resubscribes
+     */
+    DISCONNECT;
+
+    public static SlowConsumerPolicy from(String value) {
+        String name = value.trim().toUpperCase().replace('-', '_');
+        // "conflate" was the earlier name of drop-oldest
+        return "CONFLATE".equals(name) ? DROP_OLDEST : valueOf(name);
+    }
+}
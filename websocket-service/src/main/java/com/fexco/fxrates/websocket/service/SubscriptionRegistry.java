@@ -0,0 +1,127 @@
+package com.fexco.fxrates.websocket.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pair → subscribers index used by broadcasts
+ *
+ * - Pairs are interned to small int ids; subscriber sets live in an array indexed by id,
+ *   so a broadcast lookup is an array read
+ * - Subscriber sets hold the {@link SessionSender}s themselves and are concurrent hash sets:
+ *   add/remove are O(1) without copying, and iteration is safe while sessions come and go
+ * - Each sender tracks its own pair ids, so unsubscribing everything on close touches only
+ *   that session's pairs
+ * - Sets are created once per pair and never removed, so there is no create/remove race
+ */
+@Component
+@RequiredArgsConstructor
+public class SubscriptionRegistry {
+
+    private static final int INITIAL_PAIR_CAPACITY = 64;
+
+    private final CurrencyPairRegistry pairRegistry;
+
+    // Written only under the registry lock; readers see a consistent table through the volatile read
+    @SuppressWarnings("unchecked")
+    private volatile Set<SessionSender>[] subscribersByPairId = new Set[INITIAL_PAIR_CAPACITY];
+
+    /**
+     * Subscribe a session to a pair
+     */
+    public void subscribe(SessionSender sender, String currencyPair) {
+        int pairId = pairRegistry.idOf(currencyPair);
+        Set<SessionSender> subscribers = subscribersForUpdate(pairId);
+
+        subscribers.add(sender);
+        sender.getSubscribedPairIds().add(pairId);
+
+        // If the session closed concurrently, its cleanup may have missed this subscription
+        if (sender.isClosed()) {
+            subscribers.remove(sender);
+            sender.getSubscribedPairIds().remove(pairId);
+        }
+    }
+
+    /**
+     * Unsubscribe a session from a pair
+     */
+    public void unsubscribe(SessionSender sender, String currencyPair) {
+        int pairId = pairRegistry.find(currencyPair);
+        if (pairId < 0) {
+            return;
+        }
+        sender.getSubscribedPairIds().remove(pairId);
+        Set<SessionSender> subscribers = subscribersOf(pairId);
+        if (subscribers != null) {
+            subscribers.remove(sender);
+        }
+    }
+
+    /**
+     * Remove all subscriptions of a session (call after closing its sender)
+     */
+    public void unsubscribeAll(SessionSender sender) {
+        for (Integer pairId : sender.getSubscribedPairIds()) {
+            Set<SessionSender> subscribers = subscribersOf(pairId);
+            if (subscribers != null) {
+                subscribers.remove(sender);
+            }
+        }
+        sender.getSubscribedPairIds().clear();
+    }
+
+    /**
+     * Current subscribers of a pair (live view, empty if none)
+     */
+    public Set<SessionSender> subscribersOf(String currencyPair) {
+        int pairId = pairRegistry.find(currencyPair);
+        Set<SessionSender> subscribers = pairId >= 0 ? subscribersOf(pairId) : null;
+        return subscribers != null ? subscribers : Collections.emptySet();
+    }
+
+    /**
+     * Subscriber count per pair, for pairs with at least one subscriber
+     */
+    public Map<String, Integer> subscriberCounts() {
+        Set<SessionSender>[] table = subscribersByPairId;
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int pairId = 0; pairId < table.length; pairId++) {
+            Set<SessionSender> subscribers = table[pairId];
+            if (subscribers != null && !subscribers.isEmpty()) {
+                counts.put(pairRegistry.pairOf(pairId), subscribers.size());
+            }
+        }
+        return counts;
+    }
+
+    private Set<SessionSender> subscribersOf(int pairId) {
+        Set<SessionSender>[] table = subscribersByPairId;
+        return pairId < table.length ? table[pairId] : null;
+    }
+
+    private Set<SessionSender> subscribersForUpdate(int pairId) {
+        Set<SessionSender> subscribers = subscribersOf(pairId);
+        return subscribers != null ? subscribers : createSubscribers(pairId);
+    }
+
+    private synchronized Set<SessionSender> createSubscribers(int pairId) {
+        Set<SessionSender>[] table = subscribersByPairId;
+        if (pairId >= table.length) {
+            table = Arrays.copyOf(table, Math.max(table.length * 2, pairId + 1));
+        }
+        if (table[pairId] == null) {
+            table[pairId] = ConcurrentHashMap.newKeySet();
+        }
+        // Volatile write publishes the new set (and table, if grown)
+        subscribersByPairId = table;
+        return table[pairId];
+    }
+}
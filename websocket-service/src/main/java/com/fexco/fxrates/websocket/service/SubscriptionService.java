@@ -1,20 +1,30 @@
 package com.fexco.fxrates.websocket.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fexco.fxrates.common.event.FxRateUpdatedEvent;
+import com.fexco.fxrates.common.model.FxRate;
+import com.fexco.fxrates.websocket.protocol.BinaryRateFrame;
+import com.fexco.fxrates.websocket.protocol.WireProtocol;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
-import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * Service for managing WebSocket subscriptions
+ *
+ * All outbound messages go through each session's {@link SessionSender}: broadcasts are
+ * serialized once per wire protocol, the same bytes are queued for every subscriber, and
+ * the writes happen on the dispatcher's writer pool instead of the Event Hub processor thread.
+ * Pair subscriptions are kept in the {@link SubscriptionRegistry}, keyed by interned pair id.
  */
 @Service
 @Slf4j
@@ -22,22 +32,26 @@ import java.util.concurrent.CopyOnWriteArraySet;
 public class SubscriptionService {
 
     private final ObjectMapper objectMapper;
+    private final OutboundDispatcher outboundDispatcher;
+    private final CurrencyPairRegistry pairRegistry;
+    private final RateDeltaEncoder deltaEncoder;
+    private final SubscriptionRegistry subscriptionRegistry;
+    private final PayloadCompressor payloadCompressor;
 
-    // Map of sessionId -> WebSocketSession
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    @Value("${app.websocket.throttle.min-interval-ms:100}")
+    private long minThrottleMs;
 
-    // Map of currencyPair -> Set of sessionIds subscribed to it
-    private final Map<String, Set<String>> subscriptions = new ConcurrentHashMap<>();
+    @Value("${app.websocket.throttle.max-interval-ms:60000}")
+    private long maxThrottleMs;
 
-    // Map of sessionId -> Set of currencyPairs
-    private final Map<String, Set<String>> sessionSubscriptions = new ConcurrentHashMap<>();
+    // Map of sessionId -> outbound sender for the session
+    private final Map<String, SessionSender> sessions = new ConcurrentHashMap<>();
 
     /**
      * Register a new WebSocket session
      */
     public void registerSession(WebSocketSession session) {
-        sessions.put(session.getId(), session);
-        sessionSubscriptions.put(session.getId(), new CopyOnWriteArraySet<>());
+        sessions.put(session.getId(), outboundDispatcher.newSender(session));
         log.info("Registered session: {}. Total sessions: {}", session.getId(), sessions.size());
     }
 
@@ -47,127 +61,377 @@ public class SubscriptionService {
     public void unregisterSession(WebSocketSession session) {
         String sessionId = session.getId();
 
-        // Remove all subscriptions for this session
-        Set<String> pairs = sessionSubscriptions.remove(sessionId);
-        if (pairs != null) {
-            pairs.forEach(pair -> {
-                Set<String> subscribers = subscriptions.get(pair);
-                if (subscribers != null) {
-                    subscribers.remove(sessionId);
-                    if (subscribers.isEmpty()) {
-                        subscriptions.remove(pair);
-                    }
-                }
-            });
+        SessionSender sender = sessions.remove(sessionId);
+        if (sender != null) {
+            // Close first: a concurrent subscribe sees the closed flag and backs out its own entries
+            sender.close();
+            subscriptionRegistry.unsubscribeAll(sender);
+            log.info("Unregistered session: {} (sent: {}, conflated: {}, dropped: {}). Total sessions: {}",
+                    sessionId, sender.getSentCount(), sender.getConflatedCount(), sender.getDroppedCount(),
+                    sessions.size());
         }
-
-        sessions.remove(sessionId);
-        log.info("Unregistered session: {}. Total sessions: {}", sessionId, sessions.size());
     }
 
     /**
      * Subscribe session to currency pairs
      */
     public void subscribe(WebSocketSession session, List<String> currencyPairs) {
+        subscribe(session, currencyPairs, 0);
+    }
+
+    /**
+     * Subscribe session to currency pairs, delivering at most one conflated update
+     * per pair every throttleMs (0 = every update)
+     *
+     * @return Effective throttle interval after clamping to the configured bounds
+     */
+    public long subscribe(WebSocketSession session, List<String> currencyPairs, long throttleMs) {
         String sessionId = session.getId();
 
+        long intervalMs = throttleMs > 0 ? Math.min(Math.max(throttleMs, minThrottleMs), maxThrottleMs) : 0;
+
+        SessionSender sender = sessions.get(sessionId);
+        if (sender == null) {
+            log.debug("Session {} is not registered. Ignoring subscribe.", sessionId);
+            return intervalMs;
+        }
+
         for (String pair : currencyPairs) {
-            // Add to subscriptions map
-            subscriptions.computeIfAbsent(pair, k -> new CopyOnWriteArraySet<>()).add(sessionId);
+            // Set the throttle before the subscription becomes visible to broadcasts
+            sender.setThrottle(pair, intervalMs);
+            subscriptionRegistry.subscribe(sender, pair);
+        }
+
+        log.debug("Session {} subscribed to {} pairs (throttle: {}ms). Total pairs: {}",
+                sessionId, currencyPairs.size(), intervalMs, sender.getSubscribedPairIds().size());
+
+        return intervalMs;
+    }
+
+    /**
+     * Switch a session between full rateUpdate messages and rateSnapshot/rateDelta messages
+     */
+    public void setDeltaEncoding(WebSocketSession session, boolean deltaEncoding) {
+        SessionSender sender = sessions.get(session.getId());
+        if (sender != null) {
+            sender.setDeltaEncoding(deltaEncoding);
+        }
+    }
 
-            // Add to session subscriptions
-            sessionSubscriptions.get(sessionId).add(pair);
+    /**
+     * Switch a session between one frame per rate update and rateUpdates batch frames
+     */
+    public void setBatching(WebSocketSession session, boolean batching) {
+        SessionSender sender = sessions.get(session.getId());
+        if (sender != null) {
+            sender.setBatching(batching);
         }
+    }
 
-        log.debug("Session {} subscribed to {} pairs. Total pairs: {}",
-                sessionId, currencyPairs.size(), sessionSubscriptions.get(sessionId).size());
+    /**
+     * Whether a session receives rateSnapshot/rateDelta messages
+     */
+    public boolean isDeltaEncoding(WebSocketSession session) {
+        SessionSender sender = sessions.get(session.getId());
+        return sender != null && sender.isDeltaEncoding();
     }
 
     /**
-     * Unsubscribe session from currency pairs
+     * Latest known rate of each pair with its sequence number, in request order;
+     * pairs not seen yet are omitted
      */
-    public void unsubscribe(WebSocketSession session, List<String> currencyPairs) {
-        String sessionId = session.getId();
+    public Map<String, RateDeltaEncoder.LatestRate> getLatestRates(List<String> currencyPairs) {
+        return deltaEncoder.latestRates(currencyPairs);
+    }
+
+    /**
+     * Send the current snapshot (and latest delta) of each pair to a delta-encoding session
+     */
+    public void sendSnapshots(WebSocketSession session, List<String> currencyPairs) {
+        SessionSender sender = sessions.get(session.getId());
+        if (sender == null || !sender.isDeltaEncoding()) {
+            return;
+        }
 
         for (String pair : currencyPairs) {
-            Set<String> subscribers = subscriptions.get(pair);
-            if (subscribers != null) {
-                subscribers.remove(sessionId);
-                if (subscribers.isEmpty()) {
-                    subscriptions.remove(pair);
+            List<TextMessage> messages = deltaEncoder.currentMessages(pair);
+            if (!messages.isEmpty()) {
+                sender.sendSnapshot(pair, messages.get(0));
+                if (messages.size() > 1) {
+                    sender.send(pair, messages.get(1));
                 }
             }
+        }
+    }
+
+    /**
+     * Unsubscribe session from currency pairs
+     */
+    public void unsubscribe(WebSocketSession session, List<String> currencyPairs) {
+        String sessionId = session.getId();
+
+        SessionSender sender = sessions.get(sessionId);
+        if (sender == null) {
+            return;
+        }
 
-            sessionSubscriptions.get(sessionId).remove(pair);
+        for (String pair : currencyPairs) {
+            subscriptionRegistry.unsubscribe(sender, pair);
+            sender.setThrottle(pair, 0);
         }
 
         log.debug("Session {} unsubscribed from {} pairs", sessionId, currencyPairs.size());
     }
 
+    /**
+     * Wire protocol negotiated by a session (JSON if unknown)
+     */
+    public WireProtocol getProtocol(WebSocketSession session) {
+        SessionSender sender = sessions.get(session.getId());
+        return sender != null ? sender.getProtocol() : WireProtocol.JSON;
+    }
+
+    /**
+     * Binary protocol pair ids for the given currency pairs
+     */
+    public Map<String, Integer> getPairIds(List<String> currencyPairs) {
+        Map<String, Integer> pairIds = new LinkedHashMap<>();
+        currencyPairs.forEach(pair -> pairIds.put(pair, pairRegistry.idOf(pair)));
+        return pairIds;
+    }
+
+    /**
+     * Get outbound counters for a single session
+     */
+    public Map<String, Object> getSessionStats(String sessionId) {
+        SessionSender sender = sessions.get(sessionId);
+        if (sender == null) {
+            return Map.of();
+        }
+        return Map.of(
+                "sent", sender.getSentCount(),
+                "conflated", sender.getConflatedCount(),
+                "dropped", sender.getDroppedCount(),
+                "queued", sender.getQueuedCount()
+        );
+    }
+
+    /**
+     * Queue a message for a single session
+     */
+    public void sendToSession(WebSocketSession session, Object payload) {
+        SessionSender sender = sessions.get(session.getId());
+        if (sender == null) {
+            log.debug("Session {} is not registered. Dropping message.", session.getId());
+            return;
+        }
+
+        try {
+            sender.send(new TextMessage(objectMapper.writeValueAsBytes(payload)));
+        } catch (Exception e) {
+            log.error("Error serializing message for session {}", session.getId(), e);
+        }
+    }
+
     /**
      * Broadcast FX rate update to subscribed sessions
      */
     public void broadcastRateUpdate(FxRateUpdatedEvent event) {
         String currencyPair = event.getFxRate().getCurrencyPair();
-        Set<String> subscribers = subscriptions.get(currencyPair);
 
-        if (subscribers == null || subscribers.isEmpty()) {
+        // Sequence the update even without subscribers, so the snapshot/delta stream is current
+        // when someone subscribes; queueing happens under the pair's lock, in sequence order
+        try {
+            deltaEncoder.encode(event, encoded -> deliver(event, encoded));
+        } catch (Exception e) {
+            log.error("Error encoding rate update for {}", currencyPair, e);
+        }
+    }
+
+    /**
+     * Queue an encoded update for the subscribers of its pair
+     */
+    private void deliver(FxRateUpdatedEvent event, RateDeltaEncoder.EncodedUpdate encoded) {
+        String currencyPair = event.getFxRate().getCurrencyPair();
+        Set<SessionSender> subscribers = subscriptionRegistry.subscribersOf(currencyPair);
+
+        if (subscribers.isEmpty()) {
             log.trace("No subscribers for {}", currencyPair);
             return;
         }
 
-        log.debug("Broadcasting {} update to {} subscribers", currencyPair, subscribers.size());
+        log.debug("Broadcasting {} update (seq {}) to {} subscribers", currencyPair, encoded.seq(), subscribers.size());
+
+        BroadcastPayloads payloads = new BroadcastPayloads(event, encoded);
+        List<Delivery> deliveries = new ArrayList<>(subscribers.size());
+        List<SessionSender> failedSenders = new ArrayList<>();
 
-        String message;
         try {
-            Map<String, Object> payload = Map.of(
-                    "type", "rateUpdate",
-                    "event", event
-            );
-            message = objectMapper.writeValueAsString(payload);
-        } catch (Exception e) {
-            log.error("Error serializing rate update", e);
-            return;
+            // Serialize (and compress) every payload first, so an error reaches no subscriber
+            // rather than some of them
+            try {
+                for (SessionSender sender : subscribers) {
+                    if (!sender.isOpen()) {
+                        failedSenders.add(sender);
+                        continue;
+                    }
+                    deliveries.add(payloads.deliveryFor(sender));
+                }
+            } catch (Exception e) {
+                log.error("Error serializing rate update for {}", currencyPair, e);
+                return;
+            }
+
+            // Only queues; the write happens on the writer pool
+            for (Delivery delivery : deliveries) {
+                if (delivery.snapshot()) {
+                    delivery.sender().sendSnapshot(currencyPair, delivery.message());
+                } else {
+                    delivery.sender().send(currencyPair, delivery.message());
+                }
+            }
+        } finally {
+            // Clean up failed sessions
+            failedSenders.forEach(sender -> {
+                unregisterSession(sender.getSession());
+                // Already unregistered elsewhere but still indexed (e.g. lost a race): drop the stale entries
+                subscriptionRegistry.unsubscribeAll(sender);
+            });
+        }
+    }
+
+    /**
+     * Message to queue for one subscriber; snapshots bypass conflation and throttling
+     */
+    private record Delivery(SessionSender sender, WebSocketMessage<?> message, boolean snapshot) {
+    }
+
+    /**
+     * Messages for one broadcast, each serialized (and compressed) at most once, on first use;
+     * the bytes are shared by every subscriber
+     */
+    private final class BroadcastPayloads {
+
+        // Marks a payload the compressor left uncompressed
+        private static final byte[] UNCOMPRESSED = new byte[0];
+
+        private final FxRateUpdatedEvent event;
+        private final RateDeltaEncoder.EncodedUpdate encoded;
+
+        private byte[] binaryFrame;
+        private TextMessage rateUpdate;
+        private byte[] deflatedRateUpdate;
+        private byte[] deflatedSnapshot;
+        private byte[] deflatedDelta;
+
+        private BroadcastPayloads(FxRateUpdatedEvent event, RateDeltaEncoder.EncodedUpdate encoded) {
+            this.event = event;
+            this.encoded = encoded;
         }
 
-        TextMessage textMessage = new TextMessage(message);
-        List<String> failedSessions = new ArrayList<>();
+        /**
+         * Payload for a session's protocol and encoding (shared by sessions of the same kind)
+         */
+        Delivery deliveryFor(SessionSender sender) throws JsonProcessingException {
+            boolean deflate = sender.getProtocol() == WireProtocol.JSON_DEFLATE;
+            if (sender.getProtocol() == WireProtocol.BINARY) {
+                return new Delivery(sender, binaryFrame(), false);
+            }
+            if (sender.isDeltaEncoding()) {
+                return encoded.snapshot()
+                        ? new Delivery(sender, snapshot(deflate), true)
+                        : new Delivery(sender, delta(deflate), false);
+            }
+            return new Delivery(sender, rateUpdate(deflate), false);
+        }
 
-        for (String sessionId : subscribers) {
-            WebSocketSession session = sessions.get(sessionId);
-            if (session != null && session.isOpen()) {
-                try {
-                    session.sendMessage(textMessage);
-                } catch (IOException e) {
-                    log.warn("Failed to send message to session {}", sessionId, e);
-                    failedSessions.add(sessionId);
-                }
-            } else {
-                failedSessions.add(sessionId);
+        WebSocketMessage<?> binaryFrame() {
+            if (binaryFrame == null) {
+                FxRate rate = event.getFxRate();
+                binaryFrame = BinaryRateFrame.encode(pairRegistry.idOf(rate.getCurrencyPair()), rate);
             }
+            // BinaryMessage wraps its own ByteBuffer, so each session gets a view of the shared bytes
+            return new BinaryMessage(binaryFrame);
         }
 
-        // Clean up failed sessions
-        failedSessions.forEach(sessionId -> {
-            WebSocketSession session = sessions.get(sessionId);
-            if (session != null) {
-                unregisterSession(session);
+        WebSocketMessage<?> rateUpdate(boolean deflate) throws JsonProcessingException {
+            if (rateUpdate == null) {
+                // The event as received plus the change against the previous update (no nested previous rate)
+                FxRateUpdatedEvent legacyEvent = FxRateUpdatedEvent.builder()
+                        .eventId(event.getEventId())
+                        .eventType(event.getEventType())
+                        .fxRate(event.getFxRate())
+                        .eventTimestamp(event.getEventTimestamp())
+                        .source(event.getSource())
+                        .changePercentage(encoded.changePercentage())
+                        .build();
+                rateUpdate = new TextMessage(objectMapper.writeValueAsBytes(Map.of(
+                        "type", "rateUpdate",
+                        "seq", encoded.seq(),
+                        "event", legacyEvent
+                )));
+            }
+            if (!deflate) {
+                return rateUpdate;
             }
-        });
+            if (deflatedRateUpdate == null) {
+                deflatedRateUpdate = compress(rateUpdate);
+            }
+            return deflated(rateUpdate, deflatedRateUpdate);
+        }
+
+        WebSocketMessage<?> snapshot(boolean deflate) {
+            if (!deflate) {
+                return encoded.snapshotMessage();
+            }
+            if (deflatedSnapshot == null) {
+                deflatedSnapshot = compress(encoded.snapshotMessage());
+            }
+            return deflated(encoded.snapshotMessage(), deflatedSnapshot);
+        }
+
+        WebSocketMessage<?> delta(boolean deflate) {
+            if (!deflate) {
+                return encoded.deltaMessage();
+            }
+            if (deflatedDelta == null) {
+                deflatedDelta = compress(encoded.deltaMessage());
+            }
+            return deflated(encoded.deltaMessage(), deflatedDelta);
+        }
+
+        private byte[] compress(TextMessage message) {
+            byte[] compressed = payloadCompressor.compress(message);
+            return compressed != null ? compressed : UNCOMPRESSED;
+        }
+
+        private WebSocketMessage<?> deflated(TextMessage message, byte[] compressed) {
+            return compressed == UNCOMPRESSED ? message : new BinaryMessage(compressed);
+        }
     }
 
     /**
      * Get subscription statistics
      */
     public Map<String, Object> getStats() {
+        long conflatedUpdates = 0;
+        long droppedMessages = 0;
+        long queuedMessages = 0;
+        for (SessionSender sender : sessions.values()) {
+            conflatedUpdates += sender.getConflatedCount();
+            droppedMessages += sender.getDroppedCount();
+            queuedMessages += sender.getQueuedCount();
+        }
+
+        Map<String, Integer> subscriptionDetails = subscriptionRegistry.subscriberCounts();
+
         return Map.of(
                 "totalSessions", sessions.size(),
-                "totalCurrencyPairs", subscriptions.size(),
-                "subscriptionDetails", subscriptions.entrySet().stream()
-                        .collect(java.util.stream.Collectors.toMap(
-                                Map.Entry::getKey,
-                                e -> e.getValue().size()
-                        ))
+                "totalCurrencyPairs", subscriptionDetails.size(),
+                "conflatedUpdates", conflatedUpdates,
+                "droppedMessages", droppedMessages,
+                "queuedMessages", queuedMessages,
+                "subscriptionDetails", subscriptionDetails
         );
     }
 }
@@ -0,0 +1,108 @@
+package com.fexco.fxrates.websocket.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadCompressorTest {
+
+    private final PayloadCompressor compressor = new PayloadCompressor(new SimpleMeterRegistry(), 6, 128);
+
+    @AfterEach
+    void tearDown() {
+        compressor.shutdown();
+    }
+
+    @Test
+    void compressedPayloadInflatesAsRawDeflate() throws Exception {
+        String json = payload(20);
+
+        byte[] compressed = compressor.compress(new TextMessage(json));
+
+        assertThat(compressed).isNotNull();
+        assertThat(compressed.length).isLessThan(json.length());
+        assertThat(inflate(compressed)).isEqualTo(json);
+    }
+
+    @Test
+    void smallPayloadsAreNotCompressed() {
+        assertThat(compressor.compress(new TextMessage("{\"type\":\"pong\"}"))).isNull();
+    }
+
+    @Test
+    void messagesAreCompressedIndependently() throws Exception {
+        String first = payload(10);
+        String second = payload(30);
+
+        byte[] firstCompressed = compressor.compress(new TextMessage(first));
+        byte[] secondCompressed = compressor.compress(new TextMessage(second));
+
+        // Same bytes as a fresh compression: no window carried over from the previous message
+        assertThat(compressor.compress(new TextMessage(first))).isEqualTo(firstCompressed);
+        assertThat(inflate(secondCompressed)).isEqualTo(second);
+    }
+
+    @Test
+    void concurrentCompressionsShareThePool() throws Exception {
+        String json = payload(20);
+        byte[] expected = compressor.compress(new TextMessage(json));
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                futures.add(executor.submit(() -> compressor.compress(new TextMessage(json))));
+            }
+            for (Future<byte[]> future : futures) {
+                assertThat(future.get(10, TimeUnit.SECONDS)).isEqualTo(expected);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String payload(int updates) {
+        StringBuilder json = new StringBuilder("{\"type\":\"rateUpdates\",\"updates\":[");
+        for (int i = 0; i < updates; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"pair\":\"EURUSD\",\"seq\":").append(i)
+                    .append(",\"bid\":1.0845,\"ask\":1.0857,\"rate\":1.0851}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String inflate(byte[] compressed) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && inflater.needsInput()) {
+                    break;
+                }
+                output.write(buffer, 0, length);
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.fexco.fxrates.websocket.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SubscriptionRegistryTest {
+
+    private final WebSocketSession session = mock(WebSocketSession.class);
+    private final OutboundDispatcher dispatcher = mock(OutboundDispatcher.class);
+
+    private SubscriptionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SubscriptionRegistry(new CurrencyPairRegistry());
+    }
+
+    @Test
+    void subscribeAndUnsubscribe() {
+        SessionSender sender = newSender();
+
+        registry.subscribe(sender, "EURUSD");
+        registry.subscribe(sender, "GBPUSD");
+
+        assertThat(registry.subscribersOf("EURUSD")).containsExactly(sender);
+        assertThat(registry.subscribersOf("GBPUSD")).containsExactly(sender);
+        assertThat(sender.getSubscribedPairIds()).hasSize(2);
+
+        registry.unsubscribe(sender, "EURUSD");
+
+        assertThat(registry.subscribersOf("EURUSD")).isEmpty();
+        assertThat(registry.subscribersOf("GBPUSD")).containsExactly(sender);
+        assertThat(registry.subscriberCounts()).containsOnlyKeys("GBPUSD");
+    }
+
+    @Test
+    void unknownPairHasNoSubscribers() {
+        SessionSender sender = newSender();
+
+        registry.unsubscribe(sender, "EURUSD");
+
+        assertThat(registry.subscribersOf("EURUSD")).isEmpty();
+        assertThat(registry.subscriberCounts()).isEmpty();
+    }
+
+    @Test
+    void unsubscribeAllRemovesEverySubscription() {
+        SessionSender sender = newSender();
+        SessionSender other = newSender();
+        registry.subscribe(sender, "EURUSD");
+        registry.subscribe(sender, "USDJPY");
+        registry.subscribe(other, "EURUSD");
+
+        registry.unsubscribeAll(sender);
+
+        assertThat(registry.subscribersOf("EURUSD")).containsExactly(other);
+        assertThat(registry.subscribersOf("USDJPY")).isEmpty();
+        assertThat(sender.getSubscribedPairIds()).isEmpty();
+    }
+
+    @Test
+    void subscribeAfterCloseIsNotIndexed() {
+        SessionSender sender = newSender();
+        sender.close();
+
+        registry.subscribe(sender, "EURUSD");
+
+        assertThat(registry.subscribersOf("EURUSD")).isEmpty();
+        assertThat(sender.getSubscribedPairIds()).isEmpty();
+    }
+
+    @Test
+    void subscribeRacingCloseLeavesNoStaleSubscriber() throws Exception {
+        List<String> pairs = pairs(20);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 500; round++) {
+                SessionSender sender = newSender();
+                CountDownLatch start = new CountDownLatch(1);
+
+                Future<?> subscribing = executor.submit(() -> {
+                    await(start);
+                    pairs.forEach(pair -> registry.subscribe(sender, pair));
+                });
+                // Same order as SubscriptionService.unregisterSession: close, then unsubscribe everything
+                Future<?> closing = executor.submit(() -> {
+                    await(start);
+                    sender.close();
+                    registry.unsubscribeAll(sender);
+                });
+
+                start.countDown();
+                subscribing.get(10, TimeUnit.SECONDS);
+                closing.get(10, TimeUnit.SECONDS);
+
+                for (String pair : pairs) {
+                    assertThat(registry.subscribersOf(pair)).doesNotContain(sender);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentChurnOf100kSubscriptions() throws Exception {
+        // More pairs than the initial table capacity, so the table grows while subscribing
+        List<String> pairs = pairs(100);
+        List<SessionSender> senders = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            senders.add(newSender());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            runForEach(executor, senders.size(), i -> pairs.forEach(pair -> registry.subscribe(senders.get(i), pair)));
+
+            assertThat(registry.subscriberCounts()).hasSize(pairs.size());
+            assertThat(registry.subscriberCounts().values()).allMatch(count -> count == senders.size());
+
+            // Half unsubscribe pair by pair, the other half close
+            runForEach(executor, senders.size(), i -> {
+                SessionSender sender = senders.get(i);
+                if (i % 2 == 0) {
+                    pairs.forEach(pair -> registry.unsubscribe(sender, pair));
+                } else {
+                    sender.close();
+                    registry.unsubscribeAll(sender);
+                }
+            });
+
+            assertThat(registry.subscriberCounts()).isEmpty();
+            assertThat(senders).allMatch(sender -> sender.getSubscribedPairIds().isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private SessionSender newSender() {
+        return new SessionSender(session, dispatcher);
+    }
+
+    private static List<String> pairs(int count) {
+        List<String> pairs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pairs.add(String.format("P%05d", i));
+        }
+        return pairs;
+    }
+
+    /**
+     * Run an action for each index on the executor and wait for all of them
+     */
+    private static void runForEach(ExecutorService executor, int count, IntConsumer action) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> action.accept(index)));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}